@@ -0,0 +1,100 @@
+package wumpusworld;
+
+/**
+ * Turns a path into the list of actions that walks it.
+ *
+ * Everything the walk needs is known before the first step: the direction
+ * we face, which cells on the way are pits we will have to climb out of and
+ * whether the last cell holds the wumpus. So the whole walk is worked out
+ * up front and handed to the world in one go, instead of asking the world
+ * for the direction between every turn.
+ */
+class ActionPlanner {
+
+    //TURNS[from][to]: the fewest turns that take us from one direction to another
+    private static final int[][][] TURNS = new int[4][4][];
+
+    static {
+        for(int from=0;from<4;from++) {
+            for(int to=0;to<4;to++) {
+                //Directions go clockwise, so turning right adds one
+                switch((to - from + 4) % 4) {
+                    case 0: TURNS[from][to] = new int[] {};    break;
+                    case 1: TURNS[from][to] = new int[] { GameWorld.A_TURN_RIGHT };    break;
+                    case 2: TURNS[from][to] = new int[] { GameWorld.A_TURN_RIGHT, GameWorld.A_TURN_RIGHT };    break;
+                    default: TURNS[from][to] = new int[] { GameWorld.A_TURN_LEFT };    break;
+                }
+            }
+        }
+    }
+
+    //The last compiled walk
+    public int[] actions;
+    public int length = 0;
+
+    public ActionPlanner() {
+        actions = new int[64];
+    }
+
+    /**
+     * Compiles the walk along a path into actions, see the actions and length fields.
+     *
+     * @param cells Cell indices from the target (first) back to where we stand (last)
+     * @param pLen Number of cells in the path
+     * @param dir The direction we face now
+     * @param inPit If we are in a pit now
+     * @param board What we know about pits and the wumpus on the way
+     * @return Number of actions
+     */
+    public int compile(int[] cells, int pLen, int dir, boolean inPit, Board board) {
+        length = 0;
+
+        for(int i=(pLen-1);i>0;i--) {
+            Cell from = board.get(cells[i]);
+            Cell to = board.get(cells[i-1]);
+
+            //Climb up from the pit we are in, we fall into a known pit every time we walk through it
+            if(inPit || (i < pLen-1 && board.isPit(from))) {
+                add(GameWorld.A_CLIMB);
+            }
+            inPit = false;
+
+            //Turn ourselves to face the right direction
+            int toDir = direction(from, to);
+            int[] turns = TURNS[dir][toDir];
+            for(int t=0;t<turns.length;t++) {
+                add(turns[t]);
+            }
+            dir = toDir;
+
+            //If the last step brings us to the wumpus, shoot it first
+            if(i == 1 && board.isWumpus(to)) {
+                add(GameWorld.A_SHOOT);
+            }
+
+            //Then move
+            add(GameWorld.A_MOVE);
+        }
+
+        return length;
+    }
+
+    /**
+     * The direction to face to step from a to the neighbour b.
+     */
+    public static int direction(Cell a, Cell b) {
+        if(b.py > a.py) {   return GameWorld.DIR_UP;    }
+        if(b.py < a.py) {   return GameWorld.DIR_DOWN;  }
+        if(b.px < a.px) {   return GameWorld.DIR_LEFT;  }
+        return GameWorld.DIR_RIGHT;
+    }
+
+    private void add(int action) {
+        if(length == actions.length) {
+            int[] bigger = new int[2*length];
+            System.arraycopy(actions, 0, bigger, 0, length);
+            actions = bigger;
+        }
+        actions[length++] = action;
+    }
+}
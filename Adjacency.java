@@ -0,0 +1,68 @@
+package wumpusworld;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The neighbours of every cell of a board size, worked out once and shared
+ * by all the boards of that size. Nothing in it changes after it is made.
+ *
+ * Cells are numbered x*height + y like in Board, the directions are the
+ * ones of Board.DX and Board.DY.
+ */
+class Adjacency {
+
+    //One table for each size in use
+    private static final ConcurrentHashMap<Long, Adjacency> TABLES = new ConcurrentHashMap<>();
+
+    public final int width;
+    public final int height;
+
+    //NEIGHBOURS: index of the neighbour of cell i in direction d at i*4 + d, -1 outside the board
+    private final int[] neighbours;
+
+    //Number of neighbours inside the board of each cell
+    private final int[] numNeighbours;
+
+    private Adjacency(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int n = width*height;
+        neighbours = new int[4*n];
+        numNeighbours = new int[n];
+
+        for(int x=0;x<width;x++) {
+            for(int y=0;y<height;y++) {
+                int i = x*height + y;
+                numNeighbours[i] = Board.numNeighbours(width, height, x, y);
+                for(int d=0;d<4;d++) {
+                    int nx = x + Board.DX[d];
+                    int ny = y + Board.DY[d];
+                    if(nx > -1 && nx < width && ny > -1 && ny < height) {
+                        neighbours[4*i + d] = nx*height + ny;
+                    }
+                    else {
+                        neighbours[4*i + d] = -1;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The table of boards with the given size.
+     */
+    public static Adjacency of(int width, int height) {
+        return TABLES.computeIfAbsent((long) width << 32 | height, k -> new Adjacency(width, height));
+    }
+
+    /**
+     * Index of the neighbour of cell i in direction d, -1 if it is outside the board.
+     */
+    public int neighbour(int i, int d) {
+        return neighbours[4*i + d];
+    }
+
+    public int numNeighbours(int i) {
+        return numNeighbours[i];
+    }
+}
@@ -0,0 +1,987 @@
+package wumpusworld;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The reasoning of MyAgent: the rules, the path search and the choice of
+ * where to go next. It keeps nothing about a game, everything a game has
+ * learned is in its GameState, so one engine can play many games at once
+ * from many threads.
+ *
+ * The settings of an engine do not change after it is made, the with
+ * methods give a copy with one setting changed. The search and inference
+ * work space of a turn is borrowed from a pool, so a game costs only its
+ * GameState between turns.
+ */
+class AgentEngine {
+
+    //Pit prior that turns the inference off, see withPitPrior
+    public static final double NO_INFERENCE = -1;
+
+    //Settings
+    private final Trace trace;
+    private final double pitPrior;
+    private final DecisionCache decisionCache;
+    private final AgentMetrics metrics;
+    private final Lookahead lookahead;
+    private final CostModel costs;
+    private final PolicyTable policy;
+    private final long settingsSalt;
+
+    //Work spaces left over from earlier turns, in slots that are taken and given back with a
+    //compare and set, so a turn allocates nothing (a linked queue allocates a node each time)
+    private static final int POOL_SLOTS = Math.max(16, 4*Runtime.getRuntime().availableProcessors());
+    private final AtomicReferenceArray<Workspace> workspaces = new AtomicReferenceArray<>(POOL_SLOTS);
+
+    /**
+     * An engine with the inference, the shared decision cache and the shared metrics.
+     */
+    public AgentEngine(Trace trace) {
+        this(trace, 0.2, DecisionCache.SHARED, AgentMetrics.SHARED);
+    }
+
+    /**
+     * @param trace Where diagnostic output goes, Trace.NONE for no output
+     * @param pitPrior Chance of a pit in a cell for the inference, NO_INFERENCE for the counting rules
+     * @param decisionCache Decisions shared between games, null for none
+     * @param metrics Where the time of the turns is counted, null to not measure
+     */
+    public AgentEngine(Trace trace, double pitPrior, DecisionCache decisionCache, AgentMetrics metrics) {
+        this(trace, pitPrior, decisionCache, metrics, null);
+    }
+
+    /**
+     * @param lookahead Planner for the moves no cell is safe for, null to take the least risky cell
+     */
+    public AgentEngine(Trace trace, double pitPrior, DecisionCache decisionCache, AgentMetrics metrics, Lookahead lookahead) {
+        this(trace, pitPrior, decisionCache, metrics, lookahead, CostModel.DEFAULT);
+    }
+
+    /**
+     * @param costs The costs and risk rules to decide by, see CostModel
+     */
+    public AgentEngine(Trace trace, double pitPrior, DecisionCache decisionCache, AgentMetrics metrics, Lookahead lookahead, CostModel costs) {
+        this(trace, pitPrior, decisionCache, metrics, lookahead, costs, null);
+    }
+
+    /**
+     * @param policy Moves solved offline, played on boards of its size while the pit prior is
+     *        the pit chance it was solved for (see usesPolicy), null for none
+     */
+    public AgentEngine(Trace trace, double pitPrior, DecisionCache decisionCache, AgentMetrics metrics, Lookahead lookahead, CostModel costs, PolicyTable policy) {
+        this.trace = trace;
+        this.pitPrior = pitPrior;
+        this.decisionCache = decisionCache;
+        this.metrics = metrics;
+        this.lookahead = lookahead;
+        this.costs = costs;
+        this.policy = policy;
+
+        //Engines that judge risk differently must not share decisions, so their settings go into the cache key
+        long salt = useInference() ? Double.doubleToLongBits(pitPrior) * 0x9E3779B97F4A7C15L : 0;
+        if(useLookahead()) {
+            salt ^= Board.zobrist(Board.Z_DEPTH, lookahead.getDepth());
+        }
+        if(!costs.equals(CostModel.DEFAULT)) {
+            salt ^= costs.salt();
+        }
+        //The policy needs no salt, a state it has a move for never reaches the cache
+        settingsSalt = salt;
+    }
+
+    public AgentEngine withPitPrior(double prior) {
+        return new AgentEngine(trace, prior, decisionCache, metrics, lookahead, costs, policy);
+    }
+
+    public AgentEngine withDecisionCache(DecisionCache cache) {
+        return new AgentEngine(trace, pitPrior, cache, metrics, lookahead, costs, policy);
+    }
+
+    public AgentEngine withMetrics(AgentMetrics m) {
+        return new AgentEngine(trace, pitPrior, decisionCache, m, lookahead, costs, policy);
+    }
+
+    public AgentEngine withLookahead(Lookahead l) {
+        return new AgentEngine(trace, pitPrior, decisionCache, metrics, l, costs, policy);
+    }
+
+    public AgentEngine withCostModel(CostModel c) {
+        return new AgentEngine(trace, pitPrior, decisionCache, metrics, lookahead, c, policy);
+    }
+
+    public AgentEngine withPolicy(PolicyTable p) {
+        return new AgentEngine(trace, pitPrior, decisionCache, metrics, lookahead, costs, p);
+    }
+
+    public Trace getTrace() {
+        return trace;
+    }
+
+    public double getPitPrior() {
+        return pitPrior;
+    }
+
+    public CostModel getCostModel() {
+        return costs;
+    }
+
+    public Lookahead getLookahead() {
+        return lookahead;
+    }
+
+    public PolicyTable getPolicy() {
+        return policy;
+    }
+
+    /**
+     * If the moves of the policy table are played. A table is solved for one
+     * pit chance, its moves are not the best ones for another prior or the
+     * counting rules, so then the engine decides by itself.
+     */
+    public boolean usesPolicy() {
+        return policy != null && policy.getPitChance() == pitPrior;
+    }
+
+    public boolean useInference() {
+        return pitPrior >= 0;
+    }
+
+    /**
+     * If the risky moves are planned ahead, that needs the inference.
+     */
+    public boolean useLookahead() {
+        return lookahead != null && useInference();
+    }
+
+    /**
+     * The knowledge of a new game on a board of the given size.
+     */
+    public GameState newGame(int width, int height) {
+        return new GameState(width, height);
+    }
+
+    /**
+     * Work space for one turn. Borrowed from the pool by doAction, the
+     * benchmarks and MyAgent keep one of their own to call the steps one by one.
+     */
+    static class Workspace {
+        PathSearch pathSearch = new PathSearch();
+        ActionPlanner planner = new ActionPlanner();
+        int[] policyPath = new int[PolicyTable.MAX_PATH];
+        Inference inference;
+        boolean timing = false;         //if this turn is timed for the metrics
+
+        //Between beginTurn and finishTurn: where we stand, the decision cache key and the lap clock
+        Cell current;
+        long key;
+        long lap;
+    }
+
+    Workspace newWorkspace() {
+        Workspace ws = new Workspace();
+        ws.pathSearch.setCostModel(costs);
+        if(useInference()) {
+            ws.inference = new Inference(pitPrior);
+        }
+        return ws;
+    }
+
+    //"Rules"-------------------------------------------------------------------
+    private boolean isVisited(Board board, Cell c) {
+        return board.visited.get(c.index);
+    }
+
+    private boolean isAccessible(Board board, Cell c) {
+        return board.accessible.get(c.index);
+    }
+
+    private boolean isRiskless(GameState s, Cell c) {
+        int b = c.numBreezes;//breezes
+        int st = c.numStenches;//stenches
+        int v = c.numVisited;//visited neibours
+
+        boolean isRisky = (b + costs.breezeSlack() < v    &&  (st + costs.stenchSlack() < v  ||  s.wumpusFound));
+        return isRisky;
+        //If we can get higher number of visited neibours for each cell,it is easy to determine where the wumpus or
+        // pit is. if we have less number of breezes or stenches around a cell we can conclude that it is bit safe.
+        //If we could find the wumpus we can always shoot the wumpus and can disregard stenches.
+    }
+
+    private boolean isPathSafe(GameState s, Workspace ws, boolean inferred, Cell target, int cost) {
+        if(inferred) {
+            return ( dangerOf( s, ws, target ) == 0 && (cost < costs.safeCostLimit()) );
+        }
+        return ( isRiskless( s, target ) && (cost < costs.safeCostLimit()) );
+    }
+
+    private double dangerOf(GameState s, Workspace ws, Cell c) {
+        double pit = ws.inference.pitProbability(c);
+        double wumpus = ws.inference.wumpusProbability(c);
+        if(s.board.isWumpus(c)) {
+            wumpus = 0;
+        }
+        return 1 - (1-pit)*(1-wumpus);
+        //The chance that entering the cell kills us or drops us in a pit.
+        //We shoot before we enter the cell we think has the wumpus, so it is safe from the wumpus.
+    }
+
+    private int RiskLevel(Cell c) {
+
+        int riskLevel=Math.max(0, c.numNeighbours - costs.riskVisitedWeight()*c.numVisited);
+        return riskLevel;
+        //This will calculate the risk level for each cell.
+        //If we have visited more neibours the risk level will be low.
+        //The more we know about the neibours its easier to determine the risk for each cell
+    }
+
+    //Functions-----------------------------------------------------------------
+    /**
+     * Plays one turn of the game s in the world w.
+     */
+    public void doAction(GameState s, GameWorld w)
+    {
+        doAction(s, w, null);
+    }
+
+    /**
+     * Plays one turn of the game s in the world w in anytime mode: the move
+     * is the best one found before the budget ran out. The path search always
+     * runs to the end, any move needs it and it is cheap. Then the counting
+     * rules choose a move, the one the turn falls back on. If budget is left
+     * the inference tries to improve on it, and its move is only taken if
+     * the inference finished in time. The lookahead does not run in anytime
+     * mode, a risky move is the least risky cell by the inference.
+     * 
+     * @param budget Work allowed for the turn, null for no limit
+     * @return true if the decision was finished, false if the budget cut it short
+     */
+    public boolean doAction(GameState s, GameWorld w, Budget budget)
+    {
+        Workspace ws = borrow();
+        try {
+            if(metrics != null) {
+                metrics.turn();
+                s.sampleState ^= s.sampleState << 13;
+                s.sampleState ^= s.sampleState >>> 17;
+                s.sampleState ^= s.sampleState << 5;
+                ws.timing = (s.sampleState & (metrics.getSampleEvery() - 1)) == 0;
+            }
+            long start = clock(ws);
+            boolean finished = act(s, ws, w, budget);
+            lap(ws, AgentMetrics.TURN, start);
+            return finished;
+        }
+        finally {
+            release(ws);
+        }
+    }
+
+    //Work space from the pool, or a new one if all are in use. Give it back with release
+    Workspace borrow() {
+        for(int i=0;i<POOL_SLOTS;i++) {
+            Workspace ws = workspaces.get(i);
+            if(ws != null && workspaces.compareAndSet(i, ws, null)) {
+                return ws;
+            }
+        }
+        return newWorkspace();
+    }
+
+    //If all slots are full the work space is left to the garbage collector
+    void release(Workspace ws) {
+        ws.timing = false;
+        for(int i=0;i<POOL_SLOTS;i++) {
+            if(workspaces.get(i) == null && workspaces.compareAndSet(i, null, ws)) {
+                return;
+            }
+        }
+    }
+
+    boolean act(GameState s, Workspace ws, GameWorld w, Budget budget)
+    {
+        if(beginTurn(s, ws, w)) {
+            return true;
+        }
+        PathSearch pathSearch = ws.pathSearch;
+
+        //Select the best choice(safest and cheapest path)
+        boolean finished = true;
+        int target;
+        if(ws.inference == null) {
+            target = safestTarget(s, ws, false);
+        }
+        else {
+            //In anytime mode the counting rules give a move right away, safe as far as they can tell,
+            //and the inference may replace it while the budget lasts
+            int fallback = budget != null ? safestTarget(s, ws, false) : -1;
+            if(budget != null && !budget.spend(pathSearch.nodesExpanded)) {
+                trace.println(Trace.DEBUG, "Out of budget, moving by the counting rules");
+                target = fallback;
+                finished = false;
+            }
+            else {
+                //Work out the chance of a pit or the wumpus in every accessible cell
+                long hits = ws.inference.cacheHits;
+                long misses = ws.inference.cacheMisses;
+                finished = ws.inference.update(s.board, budget);
+                if(metrics != null) {
+                    metrics.inferenceCache(ws.inference.cacheHits - hits, ws.inference.cacheMisses - misses);
+                }
+                ws.lap = lap(ws, AgentMetrics.INFERENCE, ws.lap);
+                if(!finished) {
+                    trace.println(Trace.DEBUG, "Out of budget in the inference, moving by the counting rules");
+                    target = fallback;
+                }
+                else {
+                    target = safeTarget(s, ws, true);
+                }
+                if(target == -1 && useLookahead() && budget == null) {
+                    //Every move is a gamble, weigh what each could lead to
+                    target = lookahead.plan(this, s, ws.current);
+                }
+                else if(target == -1) {
+                    target = riskyTarget(s, ws, true);
+                    //Without the budget the lookahead would have chosen, so the move must not go
+                    //into the cache under the key of this engine
+                    if(useLookahead()) {
+                        finished = false;
+                    }
+                }
+            }
+        }
+        finishTurn(s, ws, w, target, finished);
+        return finished;
+    }
+
+    /**
+     * The part of a turn before the target is chosen. Takes in the space we
+     * stand in and moves right away if we can: grabbing the gold, or a
+     * decision made before in the same knowledge. Otherwise runs the path
+     * search and leaves the rest to the caller, who picks a target and calls
+     * finishTurn with the same work space.
+     *
+     * @return true if the turn is over
+     */
+    boolean beginTurn(GameState s, Workspace ws, GameWorld w)
+    {
+        trace.println(Trace.DEBUG, "In doAction()");
+        Board board = s.board;
+
+        //Location of the player
+        int cX = w.getPlayerX();
+        int cY = w.getPlayerY();
+
+        //Check and update if we entered a new space
+        long t = clock(ws);
+        if(newSpace(s, w, cX, cY) && trace.isEnabled(Trace.INFO)) {
+            trace.println(Trace.INFO, "New Space added: (" + (cX-1) + "," + (cY-1) + ")");
+        }
+        t = lap(ws, AgentMetrics.NEW_SPACE, t);
+
+        //Pick up gold if we have found it, then exit early
+        if(w.hasGlitter(cX, cY)) {
+            trace.println(Trace.INFO, "Picked the gold!");
+            w.doAction(GameWorld.A_GRAB);
+            return true;
+        }
+
+        //If nothing we know has changed since we last decided from this cell, the decision still holds
+        Cell current = board.get(cX-1, cY-1);
+        if(s.decisionLength > 0 && s.decisionVersion == board.version && s.decisionCell == current.index) {
+            trace.println(Trace.DEBUG, "Knowledge unchanged, reusing the last decision");
+            followPath(s, ws, w, s.decisionPath, s.decisionLength);
+            lap(ws, AgentMetrics.FOLLOW_PATH, t);
+            return true;
+        }
+
+        //The steps below work on cell indices and reusable arrays, the lists of cells and
+        //paths are only built when the trace wants to show them
+        boolean debug = trace.isEnabled(Trace.DEBUG);
+
+        //Show all accessible cells
+        if(debug) {
+            outputCellList(board, getAccessibleCells(s),"Accessible Cells");
+        }
+
+        //Search for wumpus
+        s.wumpusFound = findWumpus(s);
+        t = lap(ws, AgentMetrics.FIND_WUMPUS, t);
+
+        //A table solved offline for boards of this size has the move of every state it can get into
+        long state = stateKey(s, current);
+        if(usesPolicy() && policy.covers(board)) {
+            int len = policy.get(state, ws.policyPath);
+            if(len > 0) {
+                trace.println(Trace.DEBUG, "Solved state, playing the move of the policy table");
+                t = lap(ws, AgentMetrics.CACHE_LOOKUP, t);
+                remember(s, ws.policyPath, len, current);
+                followPath(s, ws, w, ws.policyPath, len);
+                lap(ws, AgentMetrics.FOLLOW_PATH, t);
+                return true;
+            }
+        }
+
+        //If any game decided in this state before, do the same
+        long key = state ^ settingsSalt;
+        int[] cached = decisionCache != null ? decisionCache.get(key) : null;
+        t = lap(ws, AgentMetrics.CACHE_LOOKUP, t);
+        if(metrics != null && decisionCache != null) {
+            metrics.decisionCache(cached != null);
+        }
+        if(cached != null) {
+            trace.println(Trace.DEBUG, "Known state, reusing a cached decision");
+            remember(s, cached, cached.length, current);
+            followPath(s, ws, w, cached, cached.length);
+            lap(ws, AgentMetrics.FOLLOW_PATH, t);
+            return true;
+        }
+
+        //Find the paths to all the cells with one search from where we stand
+        PathSearch pathSearch = ws.pathSearch;
+        pathSearch.run(board, current);
+        if(metrics != null) {
+            metrics.search(pathSearch.nodesExpanded, pathSearch.pathsFound);
+        }
+        t = lap(ws, AgentMetrics.PATH_SEARCH, t);
+        if(debug) {
+            outputPathList(board, pathSearch.pathsTo(getAccessibleCells(s)),"Accessible Paths");
+        }
+
+        ws.current = current;
+        ws.key = key;
+        ws.lap = t;
+        return false;
+    }
+
+    /**
+     * The part of a turn after the target is chosen: remembers the decision
+     * and walks to the target. Does nothing if the target is -1.
+     *
+     * @param finished If the decision was finished, one the budget cut short is not kept
+     */
+    void finishTurn(GameState s, Workspace ws, GameWorld w, int target, boolean finished)
+    {
+        if(target == -1) {
+            return;
+        }
+        Board board = s.board;
+        PathSearch pathSearch = ws.pathSearch;
+        if(trace.isEnabled(Trace.DEBUG)) {
+            outputPath(board, pathSearch.pathTo(board.get(target)),"Selected Path");
+        }
+
+        //Remember it, for us and for the other games. A decision the budget cut short is not kept
+        int len = pathSearch.tracePath(target);
+        remember(s, pathSearch.path, len, ws.current);
+        if(!finished) {
+            s.decisionLength = 0;
+        }
+        else if(decisionCache != null) {
+            decisionCache.put(ws.key, pathSearch.path, len);
+        }
+
+        long t = lap(ws, AgentMetrics.SELECT, ws.lap);
+
+        //Make a move
+        followPath(s, ws, w, pathSearch.path, len);
+        lap(ws, AgentMetrics.FOLLOW_PATH, t);
+        trace.println(Trace.DEBUG, "\n");
+    }
+
+    /**
+     * Key of what the game s knows with the player in current, the same for
+     * every engine. The decision cache salts it with the settings.
+     */
+    long stateKey(GameState s, Cell current) {
+        return s.board.hash ^ Board.zobrist(Board.Z_PLAYER, current.index) ^ s.sizeSalt;
+    }
+
+    //The time now for the metrics, 0 if we do not time this turn
+    private long clock(Workspace ws) {
+        return ws.timing ? System.nanoTime() : 0;
+    }
+
+    //Adds the time since t to the phase and returns the time now
+    private long lap(Workspace ws, int phase, long t) {
+        if(!ws.timing) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        metrics.time(phase, now - t);
+        return now;
+    }
+
+    private void remember(GameState s, int[] path, int len, Cell current) {
+        //findWumpus may have changed the board so take the version now
+        if(s.decisionPath.length < len) {
+            s.decisionPath = new int[Math.max(len, 2*s.decisionPath.length)];
+        }
+        System.arraycopy(path, 0, s.decisionPath, 0, len);
+        s.decisionLength = len;
+        s.decisionVersion = s.board.version;
+        s.decisionCell = current.index;
+    }
+
+    //Decision steps----------------------------------------------------------
+    //The steps doAction runs are package-private so the benchmarks can time them one by one
+
+    public boolean newSpace(GameState s, Percepts w, int x, int y) {
+
+        //If we have added new space it updates the Cell of the space we entered and its surrounding spaces' Cells
+        Board board = s.board;
+
+        //x and y start at 1, the board starts at 0
+        Cell c = board.get(x-1, y-1);
+
+        //If already visited
+        if(isVisited(board, c)) {
+            return false;
+        }
+
+        //TRAVEL BOARD CALCULATION
+        //Set cell we traveled into as VISITED, its neighbours that are not visited become accessible
+        board.visit(c);
+
+        //PERCEPT BOARD CALCULATION
+        //If we find a percept in new space we can log nearby cells saying that those might cause that percepts
+        boolean breeze = w.hasBreeze(x, y);
+        boolean stench = w.hasStench(x, y);
+        if(breeze) {    board.markBreeze(c);    }
+        if(stench) {    board.markStench(c);    }
+        else {          board.markNoStench(c);  }
+
+        //Set newly found breezes and stenches, and the new visited neighbour, in the neighbours
+        board.countPercepts(c, breeze, stench);
+
+        //OBJECT BOARD CALCULATION
+        //The gold percept can be resolved outside since we win
+        //and no need to enter wumpus beacuse we are dead
+        if(w.isInPit()) {
+            board.markPit(c);
+        }
+
+        //RISK CALCULATION
+        //Only the frontier cells next to this cell, or next to a visited neighbour of it
+        //(its number of visited neighbours went up) can have a new risk level
+        Cell nb;
+        Cell nb2;
+        for(int d=0;d<4;d++) {
+            nb = board.neighbour(c, d);
+            if(nb == null) {
+                continue;
+            }
+            if(isAccessible(board, nb)) {
+                board.setRisk(nb, riskOfEnteringDenominator(board, nb));
+            }
+            else if(isVisited(board, nb)) {
+                for(int d2=0;d2<4;d2++) {
+                    nb2 = board.neighbour(nb, d2);
+                    if(nb2 != null && isAccessible(board, nb2)) {
+                        board.setRisk(nb2, riskOfEnteringDenominator(board, nb2));
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    ArrayList<Cell> getAccessibleCells(GameState s) {
+        //makes a list with accessible cells, the board keeps them in a list as they are found
+        return s.board.frontierCells();
+    }
+
+    boolean findWumpus(GameState s) {
+        //Fist we determine if the wumpus already has been found, and if so return early
+        if(s.wumpusFound) {
+            return true;
+        }
+
+        //The board narrows the cells that can hold the wumpus down with every percept,
+        //when a single one is left that is where it is
+        Board board = s.board;
+        if(board.wumpusCandidateCount() != 1) {
+            return false;
+        }
+
+        board.markWumpus(board.get(board.wumpusCandidate()));
+        return true;
+
+    }
+
+    /**
+     * Updates the inference of the work space to the board of s, if it has one.
+     */
+    void infer(GameState s, Workspace ws) {
+        if(ws.inference != null) {
+            ws.inference.update(s.board);
+        }
+    }
+
+    ArrayList<Path> pathsToCells(GameState s, Workspace ws, Cell currentCell, ArrayList<Cell> cList) {
+
+        //One search from where we stand gives the paths to all the cells
+        ws.pathSearch.run(s.board, currentCell);
+
+        return ws.pathSearch.pathsTo(cList);
+    }
+
+    ArrayList<Path> pathsToCellsRecursive(GameState s, Cell currentCell, ArrayList<Cell> cList) {
+
+        //The old way of building the paths, one full recursion per cell.
+        //Not used by doAction any more, kept to compare the costs against PathSearch
+
+        ArrayList<Path> pathList = new ArrayList<>();
+
+        ArrayList<Cell> cellList = new ArrayList<>();
+
+        for(int i=0;i<cList.size();i++) {
+            pathList.add(    bestPathTo(s.board, cList.get(i), cellList, currentCell)    );
+        }
+
+        return pathList;
+    }
+
+    private Path bestPathTo(Board board, Cell target, ArrayList<Cell> cellList, Cell currentCell) {
+
+        Path retPath = new Path();
+
+        //Calculate the cost for entering this space
+        int cellCost = 0;
+        cellCost++;
+        if(board.isPit(currentCell)) {       //if fall into a pit cost is 1000 and to climb up 1
+            cellCost += costs.pitCost();
+        }
+
+        //Create a list describing the path we have traveled, including this node
+        @SuppressWarnings("unchecked")
+        ArrayList<Cell> pathSoFar = (ArrayList<Cell>) cellList.clone();
+        pathSoFar.add(currentCell);
+
+        //Check for accessible neighbours
+        ArrayList<Cell> nbList = board.getNeighbours(currentCell, Cell.ACCESSIBLE);
+
+        //Check if the target is among them
+        if(nbList.contains(target)) {
+
+            //Add the goal to the path
+            retPath.cellList.add(target);
+            //Add this cell to the path
+            retPath.cellList.add(currentCell);
+
+            //Calculate cost
+            retPath.cost++;                                     //Movement
+            if(board.isWumpus(target)) {
+                retPath.cost += costs.shootCost(); //for shooting wumpus
+            }
+
+            retPath.cost += cellCost;
+
+            return retPath;
+
+        }
+
+        //Check for visited neighbours
+        nbList.clear();
+        nbList = board.getNeighbours(currentCell, Cell.VISITED);
+
+        //Remove neighbours we have traveled through earlier
+
+        for(int i=0;i<nbList.size();i++) {
+            if(cellList.contains(nbList.get(i))) {      //If the cell list already contains that neighbour
+                nbList.remove(i);                         //Remove cell from neighbour list
+                i--;        //Just to ensure we do not accidentally skip an element
+            }
+        }
+
+        //Return if there are no valid neighbours
+        if(nbList.isEmpty()) {
+
+            //Return retPath with a cost = 1 000 000
+            retPath.cost = 1000000;
+            return retPath;
+        }
+
+
+        //Recurse over the valid neighbours and recieve the paths we need
+        Path pathNew;
+        retPath.cost = 1000000;
+
+        for(int i=0;i<nbList.size();i++) {
+
+            pathNew = bestPathTo(board, target, pathSoFar, nbList.get(i));
+
+            //Selct the path with the lowest cost
+            if(pathNew.cost < retPath.cost) {
+                retPath = pathNew;
+            }
+
+        }
+
+        //Now edit retPath values with those of the current cell
+        retPath.cellList.add(currentCell);          //Add the current cell to the path
+        retPath.cost += cellCost;                   //Add the cost of the current node
+
+        return retPath;
+
+    }
+
+    int safestTarget(GameState s, Workspace ws) {
+        return safestTarget(s, ws, ws.inference != null);
+    }
+
+    //With inferred the risk of a cell comes from the inference of the work space,
+    //which must be up to date, otherwise from the counting rules
+    int safestTarget(GameState s, Workspace ws, boolean inferred) {
+
+        //Determine if there are any cells with a path that is guaranteed to be safe,
+        //if so we take the cheapest of them
+        int best = safeTarget(s, ws, inferred);
+        if(best != -1) {
+            return best;
+        }
+
+        //Otherwise take the cheapest of the cells with the least notion of danger
+        return riskyTarget(s, ws, inferred);
+    }
+
+    /**
+     * safestTarget by the counting rules, with the rules of game g worked
+     * out by the kernel (see BatchAgents) instead of read from the Cells.
+     * Picks the same target.
+     */
+    int kernelTarget(GameState s, Workspace ws, BatchKernel kernel, int g) {
+        Board board = s.board;
+        int n = board.frontierSize();
+        int best = -1;
+        int t;
+
+        //The cheapest cell with a path that is guaranteed to be safe
+        for(int i=0;i<n;i++) {
+            t = board.frontierAt(i);
+            if(kernel.isRiskless(g, t) && ws.pathSearch.cost(t) < costs.safeCostLimit()) {
+                best = cheaper(ws, best, t);
+            }
+        }
+        if(best != -1) {
+            return best;
+        }
+
+        //Otherwise the cheapest of the cells with the biggest denominator
+        int highestRiskLevel = -1;
+        for(int i=0;i<n;i++) {
+            highestRiskLevel = Math.max(highestRiskLevel, kernel.riskLevel(g, board.frontierAt(i)));
+        }
+        for(int i=0;i<n;i++) {
+            t = board.frontierAt(i);
+            if(kernel.riskLevel(g, t) == highestRiskLevel) {
+                best = cheaper(ws, best, t);
+            }
+        }
+        if(best == -1) {
+            trace.println(Trace.INFO, "ERROR: No Cells in safeList\n");
+        }
+        return best;
+    }
+
+    //The cheapest cell with a path that is guaranteed to be safe, -1 if there is none
+    private int safeTarget(GameState s, Workspace ws, boolean inferred) {
+        Board board = s.board;
+        int n = board.frontierSize();
+        int best = -1;
+        int numSafe = 0;
+        int t;
+
+        for(int i=0;i<n;i++) {
+            t = board.frontierAt(i);
+            if( isPathSafe(s, ws, inferred, board.get(t), ws.pathSearch.cost(t)) ) {
+                numSafe++;
+                best = cheaper(ws, best, t);
+            }
+        }
+
+        if(trace.isEnabled(Trace.DEBUG)) {
+            trace.println(Trace.DEBUG, "Number of Safe Paths(100%): " + numSafe);
+        }
+        return best;
+    }
+
+    private int riskyTarget(GameState s, Workspace ws, boolean inferred) {
+        int best = leastRiskyTarget(s, ws, inferred);
+        if(best == -1) {
+            trace.println(Trace.INFO, "ERROR: No Cells in safeList\n");
+        }
+
+        return best;
+    }
+
+    private int leastRiskyTarget(GameState s, Workspace ws, boolean inferred) {
+        //This function returns the cheapest of the safest cells in our grid
+
+        Board board = s.board;
+        int n = board.frontierSize();
+        int best = -1;
+        int numCells = 0;
+        int t;
+
+        if(inferred) {
+            //The cells with the lowest chance of a pit or the wumpus are the safest to enter
+            double lowestDanger = 1;
+            for(int i=0;i<n;i++) {
+                lowestDanger = Math.min(lowestDanger, dangerOf(s, ws, board.get(board.frontierAt(i))));
+            }
+            for(int i=0;i<n;i++) {
+                t = board.frontierAt(i);
+                if(dangerOf(s, ws, board.get(t)) <= lowestDanger + 1e-9) {
+                    numCells++;
+                    best = cheaper(ws, best, t);
+                }
+            }
+
+            if(trace.isEnabled(Trace.DEBUG)) {
+                trace.println(Trace.DEBUG, "Lowest Danger: " + lowestDanger + ", cells: " + numCells);
+            }
+            return best;
+        }
+
+        //newSpace keeps the risk level (denominator) of every accessible cell up to date in the board.
+        //The biggest denominator(s) indicate the safest spaces to enter
+        int highestRiskLevel = board.highestRiskLevel();
+
+        for(int i=0;i<n;i++) {
+            t = board.frontierAt(i);
+            if(board.riskLevel(board.get(t)) == highestRiskLevel) {
+                numCells++;
+                best = cheaper(ws, best, t);
+            }
+        }
+
+        if(trace.isEnabled(Trace.DEBUG)) {
+            trace.println(Trace.DEBUG, "Highest Risk Value: " + highestRiskLevel + ", cells: " + numCells);
+        }
+
+        return best;
+    }
+
+    private int cheaper(Workspace ws, int best, int t) {
+        //Returns the cheaper of two cells to walk to, -1 is no cell.
+        //Cells we can not reach never win, on equal cost the cell with the lowest index wins
+        int cost = ws.pathSearch.cost(t);
+        if(cost >= PathSearch.NO_PATH) {
+            return best;
+        }
+        if(best == -1) {
+            return t;
+        }
+        int bestCost = ws.pathSearch.cost(best);
+        if(cost < bestCost || (cost == bestCost && t < best)) {
+            return t;
+        }
+        return best;
+    }
+
+    private int riskOfEnteringDenominator(Board board, Cell c) {
+        //For each Acceessible space A a we now select all Visited spaces S (as these are the ones we would enter from)
+        //and calculate the risk. The highest risk from any S is the overall risk of entering A
+
+        //Cell's position
+        int cx = c.px;
+        int cy = c.py;
+        int riskValue;
+        int lowestRiskLevel = 100;
+        boolean debug = trace.isEnabled(Trace.DEBUG);
+
+        if(debug) {
+            trace.println(Trace.DEBUG, "------- Cell [" + cx + "," + cy + "] Calculation -------");
+        }
+
+        Cell nb;
+        int k = 0;
+
+        //to find the lowest denominator (highest risk) over the visited neighbours
+        for(int d=0;d<4;d++) {
+            nb = board.neighbour(c, d);
+            if(nb == null || !isVisited(board, nb)) {
+                continue;
+            }
+            riskValue = RiskLevel(nb);       //Calculate the risk
+
+            if(debug) {
+                trace.println(Trace.DEBUG, "Risk value [" + k + "]: " + riskValue);
+            }
+            k++;
+
+            if(riskValue < lowestRiskLevel) {
+                lowestRiskLevel = riskValue;
+            } //Save it if it is the lowest found
+
+        }
+
+        if(debug) {
+            trace.println(Trace.DEBUG, "Final Risk Value: " + lowestRiskLevel);
+        }
+
+        return lowestRiskLevel;
+    }
+
+    private void followPath(GameState s, Workspace ws, GameWorld w, int[] path, int len) {
+
+        //Work out every action of the walk up front, then do them all at once
+        ActionPlanner planner = ws.planner;
+        int n = planner.compile(path, len, w.getDirection(), w.isInPit(), s.board);
+
+        if(trace.isEnabled(Trace.INFO)) {
+            for(int i=0;i<n;i++) {
+                if(planner.actions[i] == GameWorld.A_CLIMB) {
+                    trace.println(Trace.INFO, "Climbing out of pit, action[" + i + "]");
+                }
+                else if(planner.actions[i] == GameWorld.A_SHOOT) {
+                    trace.println(Trace.INFO, "Shooting the Arrow..");
+                }
+            }
+        }
+
+        w.doActions(planner.actions, n);
+
+    }
+
+    //Output Functions----------------------------------------------------------
+    //These only build their strings when the trace wants DEBUG output
+    private void outputCellList(Board board, ArrayList<Cell> cList,String t) {
+        if(!trace.isEnabled(Trace.DEBUG)) {
+            return;
+        }
+        int cx;
+        int cy;
+        boolean wum;
+        boolean pit;
+        trace.println(Trace.DEBUG, t + ": size(" + cList.size() + ")");
+        for(int i=0;i<cList.size();i++) {
+            cx = cList.get(i).px;
+            cy = cList.get(i).py;
+            wum = board.isWumpus(cList.get(i));
+            pit = board.isPit(cList.get(i));
+            trace.println(Trace.DEBUG, "        [" + i + "]: (" + cx + "," + cy + ") Wumpus: " + wum + " Pit: " + pit);
+        }
+    }
+
+    private void outputPathList(Board board, ArrayList<Path> pList,String s) {
+        if(!trace.isEnabled(Trace.DEBUG)) {
+            return;
+        }
+
+        for(int i=0;i<pList.size();i++) {
+            outputPath(board, pList.get(i),(s + "[" + i + "]"));
+        }
+
+    }
+
+    private void outputPath(Board board, Path p,String s) {
+        if(!trace.isEnabled(Trace.DEBUG)) {
+            return;
+        }
+        trace.println(Trace.DEBUG, s + ": Cost(" + p.cost + ") |");
+        outputCellList(board, p.cellList,"    Cells");
+    }
+}
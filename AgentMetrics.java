@@ -0,0 +1,288 @@
+package wumpusworld;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Where the time of doAction goes: a latency histogram for each phase of a
+ * turn and counters of the search work and the cache lookups. One instance
+ * is shared by every agent in the process unless an agent is given another
+ * one, so a batch run on many threads adds up into the same numbers.
+ *
+ * Reading the clock costs about as much as the shortest phases, so the
+ * agents time one turn in sampleEvery, picked at random. The counters count
+ * every turn.
+ *
+ * The numbers can be read over JMX (see register) or as a Snapshot, once or
+ * every period (see startReporting).
+ */
+public class AgentMetrics implements AgentMetricsMBean {
+
+    //Phases of a turn. The frontier is kept up to date inside newSpace, so building it is part of NEW_SPACE
+    public static final int NEW_SPACE = 0;
+    public static final int FIND_WUMPUS = 1;
+    public static final int CACHE_LOOKUP = 2;
+    public static final int INFERENCE = 3;
+    public static final int PATH_SEARCH = 4;
+    public static final int SELECT = 5;
+    public static final int FOLLOW_PATH = 6;
+    public static final int TURN = 7;          //the whole doAction
+    public static final String[] PHASE_NAMES = {
+        "newSpace", "findWumpus", "cacheLookup", "inference", "pathSearch", "select", "followPath", "turn"
+    };
+
+    //Metrics used by all agents unless they are given others
+    public static final AgentMetrics SHARED = new AgentMetrics();
+
+    private volatile int sampleEvery = 16;        //a power of two
+
+    private LatencyHistogram[] phases;
+    private LongAdder turns = new LongAdder();
+    private LongAdder decisions = new LongAdder();         //turns that searched, not served by a cache
+    private LongAdder nodesExpanded = new LongAdder();
+    private LongAdder pathsFound = new LongAdder();
+    private LongAdder decisionCacheHits = new LongAdder();
+    private LongAdder decisionCacheMisses = new LongAdder();
+    private LongAdder inferenceCacheHits = new LongAdder();
+    private LongAdder inferenceCacheMisses = new LongAdder();
+
+    public AgentMetrics() {
+        phases = new LatencyHistogram[PHASE_NAMES.length];
+        for(int i=0;i<phases.length;i++) {
+            phases[i] = new LatencyHistogram();
+        }
+    }
+
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    /**
+     * Times one turn in n (rounded up to a power of two), 1 to time every turn.
+     */
+    public void setSampleEvery(int n) {
+        sampleEvery = n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    //Recording, called by the agents-------------------------------------------
+    public void time(int phase, long nanos) {
+        phases[phase].record(nanos);
+    }
+
+    public void turn() {
+        turns.increment();
+    }
+
+    public void search(int expanded, int found) {
+        decisions.increment();
+        nodesExpanded.add(expanded);
+        pathsFound.add(found);
+    }
+
+    public void decisionCache(boolean hit) {
+        if(hit) {
+            decisionCacheHits.increment();
+        }
+        else {
+            decisionCacheMisses.increment();
+        }
+    }
+
+    public void inferenceCache(long hits, long misses) {
+        inferenceCacheHits.add(hits);
+        inferenceCacheMisses.add(misses);
+    }
+
+    //Snapshots---------------------------------------------------------------
+    /**
+     * The numbers as they are now.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Hands a snapshot to the consumer every period, on a daemon thread,
+     * until the returned future is cancelled.
+     */
+    public ScheduledFuture<?> startReporting(long period, TimeUnit unit, Consumer<Snapshot> consumer) {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "AgentMetrics");
+            t.setDaemon(true);
+            return t;
+        });
+        ScheduledFuture<?> f = timer.scheduleAtFixedRate(() -> consumer.accept(snapshot()), period, period, unit);
+        timer.shutdown();       //the scheduled task keeps running until cancelled
+        return f;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server under
+     * wumpusworld:type=AgentMetrics,name=<name>. Registering the same name
+     * again replaces the old one.
+     */
+    public void register(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName on = new ObjectName("wumpusworld:type=AgentMetrics,name=" + name);
+            if(server.isRegistered(on)) {
+                server.unregisterMBean(on);
+            }
+            server.registerMBean(this, on);
+        }
+        catch(JMException e) {
+            throw new IllegalStateException("Could not register AgentMetrics " + name, e);
+        }
+    }
+
+    //MBean-------------------------------------------------------------------
+    public long getTurns() {
+        return turns.sum();
+    }
+
+    public long getDecisions() {
+        return decisions.sum();
+    }
+
+    public long getNodesExpanded() {
+        return nodesExpanded.sum();
+    }
+
+    public long getPathsFound() {
+        return pathsFound.sum();
+    }
+
+    public double getDecisionCacheHitRate() {
+        return rate(decisionCacheHits.sum(), decisionCacheMisses.sum());
+    }
+
+    public double getInferenceCacheHitRate() {
+        return rate(inferenceCacheHits.sum(), inferenceCacheMisses.sum());
+    }
+
+    public String[] getPhases() {
+        return PHASE_NAMES.clone();
+    }
+
+    public long[] getPhaseCounts() {
+        return snapshot().count;
+    }
+
+    public double[] getPhaseMeanNanos() {
+        return snapshot().meanNanos;
+    }
+
+    public long[] getPhaseP50Nanos() {
+        return snapshot().p50Nanos;
+    }
+
+    public long[] getPhaseP99Nanos() {
+        return snapshot().p99Nanos;
+    }
+
+    public String getReport() {
+        return snapshot().toString();
+    }
+
+    public void reset() {
+        for(int i=0;i<phases.length;i++) {
+            phases[i].reset();
+        }
+        turns.reset();
+        decisions.reset();
+        nodesExpanded.reset();
+        pathsFound.reset();
+        decisionCacheHits.reset();
+        decisionCacheMisses.reset();
+        inferenceCacheHits.reset();
+        inferenceCacheMisses.reset();
+    }
+
+    private static double rate(long hits, long misses) {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * The metrics at one moment. Threads that record while it is taken may
+     * show up in some numbers and not yet in others.
+     */
+    public static class Snapshot {
+        public final long timeMillis;
+        public final long turns;
+        public final long decisions;
+        public final long nodesExpanded;
+        public final long pathsFound;
+        public final double decisionCacheHitRate;
+        public final double inferenceCacheHitRate;
+
+        //Indexed by phase
+        public final long[] count;
+        public final double[] meanNanos;
+        public final long[] p50Nanos;
+        public final long[] p90Nanos;
+        public final long[] p99Nanos;
+        public final long[] maxNanos;
+
+        Snapshot(AgentMetrics m) {
+            timeMillis = System.currentTimeMillis();
+            turns = m.getTurns();
+            decisions = m.getDecisions();
+            nodesExpanded = m.getNodesExpanded();
+            pathsFound = m.getPathsFound();
+            decisionCacheHitRate = m.getDecisionCacheHitRate();
+            inferenceCacheHitRate = m.getInferenceCacheHitRate();
+
+            int n = m.phases.length;
+            count = new long[n];
+            meanNanos = new double[n];
+            p50Nanos = new long[n];
+            p90Nanos = new long[n];
+            p99Nanos = new long[n];
+            maxNanos = new long[n];
+            long[] buckets = new long[LatencyHistogram.BUCKETS];
+            for(int i=0;i<n;i++) {
+                LatencyHistogram h = m.phases[i];
+                h.copyBuckets(buckets);
+                count[i] = h.count();
+                meanNanos[i] = count[i] == 0 ? 0 : (double) h.totalNanos() / count[i];
+                p50Nanos[i] = LatencyHistogram.percentile(buckets, 0.5);
+                p90Nanos[i] = LatencyHistogram.percentile(buckets, 0.9);
+                p99Nanos[i] = LatencyHistogram.percentile(buckets, 0.99);
+                maxNanos[i] = LatencyHistogram.percentile(buckets, 1);
+            }
+        }
+
+        /**
+         * Mean number of nodes expanded by the turns that searched.
+         */
+        public double nodesPerDecision() {
+            return decisions == 0 ? 0 : (double) nodesExpanded / decisions;
+        }
+
+        public double pathsPerDecision() {
+            return decisions == 0 ? 0 : (double) pathsFound / decisions;
+        }
+
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Turns: %d, searched: %d, nodes/search: %.1f, paths/search: %.1f%n",
+                turns, decisions, nodesPerDecision(), pathsPerDecision()));
+            sb.append(String.format("Cache hits: decisions %.1f %%, inference %.1f %%%n",
+                100*decisionCacheHitRate, 100*inferenceCacheHitRate));
+            sb.append(String.format("%-12s %10s %10s %10s %10s %10s %10s%n", "phase (ns)", "count", "mean", "p50", "p90", "p99", "max"));
+            for(int i=0;i<count.length;i++) {
+                sb.append(String.format("%-12s %10d %10.0f %10d %10d %10d %10d%n",
+                    PHASE_NAMES[i], count[i], meanNanos[i], p50Nanos[i], p90Nanos[i], p99Nanos[i], maxNanos[i]));
+            }
+            return sb.toString();
+        }
+    }
+}
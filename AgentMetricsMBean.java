@@ -0,0 +1,38 @@
+package wumpusworld;
+
+/**
+ * What AgentMetrics shows over JMX, for example in JConsole under
+ * wumpusworld:type=AgentMetrics. Times are in nanoseconds.
+ */
+public interface AgentMetricsMBean {
+
+    public int getSampleEvery();
+
+    public void setSampleEvery(int n);
+
+    public long getTurns();
+
+    public long getDecisions();
+
+    public long getNodesExpanded();
+
+    public long getPathsFound();
+
+    public double getDecisionCacheHitRate();
+
+    public double getInferenceCacheHitRate();
+
+    public String[] getPhases();
+
+    public long[] getPhaseCounts();
+
+    public double[] getPhaseMeanNanos();
+
+    public long[] getPhaseP50Nanos();
+
+    public long[] getPhaseP99Nanos();
+
+    public String getReport();
+
+    public void reset();
+}
@@ -0,0 +1,183 @@
+package wumpusworld;
+
+/**
+ * Many games of the same board size played turn by turn in lock step, for
+ * simulation farms. Each game plays in a lane of its own.
+ *
+ * A step gives every running game one turn in three passes: first each
+ * game takes in its new space and runs the path search (or moves right
+ * away, see AgentEngine.beginTurn), then a BatchKernel works out the
+ * counting rules for all the games at once, then each game picks its target
+ * from the results and walks there.
+ *
+ * The kernel only stands in for the counting rules. With an engine that
+ * uses the inference every game just plays its turn with doAction. The
+ * turns are not timed for the metrics.
+ */
+class BatchAgents {
+
+    private AgentEngine engine;
+    private int width;
+    private int height;
+    private int lanes;
+
+    private GameState[] states;
+    private GameWorld[] worlds;
+    private AgentEngine.Workspace[] workspaces;
+    private boolean[] active;
+    private boolean[] pending;      //waiting for a target this step
+    private RuntimeException[] errors;  //what stopped each lane, null if nothing
+    private BatchKernel kernel;     //null with the inference
+
+    public BatchAgents(AgentEngine engine, int width, int height, int lanes) {
+        this.engine = engine;
+        this.width = width;
+        this.height = height;
+        this.lanes = lanes;
+        states = new GameState[lanes];
+        worlds = new GameWorld[lanes];
+        workspaces = new AgentEngine.Workspace[lanes];
+        active = new boolean[lanes];
+        pending = new boolean[lanes];
+        errors = new RuntimeException[lanes];
+        if(!engine.useInference()) {
+            kernel = new BatchKernel(width, height, lanes);
+        }
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    /**
+     * Starts a new game in lane g, in the world w.
+     */
+    public void start(int g, GameWorld w) {
+        if(states[g] == null) {
+            states[g] = engine.newGame(width, height);
+            workspaces[g] = engine.newWorkspace();
+        }
+        else {
+            states[g].reset();
+        }
+        if(kernel != null) {
+            kernel.clear(g);
+        }
+        worlds[g] = w;
+        active[g] = true;
+        errors[g] = null;
+    }
+
+    /**
+     * Leaves lane g empty until the next start.
+     */
+    public void stop(int g) {
+        active[g] = false;
+        worlds[g] = null;
+    }
+
+    public boolean isActive(int g) {
+        return active[g];
+    }
+
+    /**
+     * If the game of lane g threw an exception. The lane is stopped then.
+     */
+    public boolean hasFailed(int g) {
+        return errors[g] != null;
+    }
+
+    /**
+     * The exception that stopped the game of lane g, null if none did.
+     */
+    public RuntimeException getError(int g) {
+        return errors[g];
+    }
+
+    public GameState getState(int g) {
+        return states[g];
+    }
+
+    /**
+     * One turn for every active lane whose game is not over.
+     */
+    public void step() {
+        if(kernel == null) {
+            for(int g=0;g<lanes;g++) {
+                if(running(g)) {
+                    try {
+                        engine.doAction(states[g], worlds[g]);
+                    }
+                    catch(RuntimeException e) {
+                        fail(g, e);
+                    }
+                }
+            }
+            return;
+        }
+
+        //Take in the new spaces and find the paths, some games move right away
+        int waiting = 0;
+        for(int g=0;g<lanes;g++) {
+            pending[g] = false;
+            if(!running(g)) {
+                continue;
+            }
+            try {
+                pending[g] = !begin(g);
+            }
+            catch(RuntimeException e) {
+                fail(g, e);
+            }
+            if(pending[g]) {
+                waiting++;
+            }
+        }
+        if(waiting == 0) {
+            return;
+        }
+
+        //The counting rules of all games at once
+        kernel.evaluate(engine.getCostModel());
+
+        //Pick the targets and walk
+        for(int g=0;g<lanes;g++) {
+            if(!pending[g]) {
+                continue;
+            }
+            try {
+                int target = engine.kernelTarget(states[g], workspaces[g], kernel, g);
+                engine.finishTurn(states[g], workspaces[g], worlds[g], target, true);
+            }
+            catch(RuntimeException e) {
+                fail(g, e);
+            }
+        }
+    }
+
+    private boolean running(int g) {
+        return active[g] && !worlds[g].gameOver();
+    }
+
+    private void fail(int g, RuntimeException e) {
+        errors[g] = e;
+        stop(g);
+    }
+
+    //The first part of the turn, with the space we stand in passed on to the kernel if it is new
+    private boolean begin(int g) {
+        GameState s = states[g];
+        GameWorld w = worlds[g];
+        Board board = s.board;
+        int c = board.index(w.getPlayerX()-1, w.getPlayerY()-1);
+        boolean known = board.visited.get(c);
+
+        boolean done = engine.beginTurn(s, workspaces[g], w);
+
+        if(!known) {
+            kernel.visit(g, c, board.breeze.get(c), board.stench.get(c));
+        }
+        kernel.setWumpusFound(g, s.wumpusFound);
+        return done;
+    }
+}
@@ -0,0 +1,164 @@
+package wumpusworld;
+
+/**
+ * The counting rules of AgentEngine (isRiskless, RiskLevel and
+ * riskOfEnteringDenominator) for many games of the same board size at once.
+ *
+ * The knowledge the rules need is kept as structure of arrays: one int
+ * array for each counter, with the value of cell c in game g at
+ * c*lanes + g, so the games of a cell lie next to each other. evaluate()
+ * then works out the rules for every cell of every game in a few flat
+ * loops without branches, that the JIT can turn into SIMD instructions
+ * where the machine has them. The conditions are worked out as 0/1 ints
+ * with shifts and masks instead of ifs for the same reason.
+ *
+ * The counters are kept up to date by visit, the same way newSpace keeps
+ * the ones in the Cells. Dense boards only.
+ */
+class BatchKernel {
+
+    //Denominator of a cell with no visited neighbour, see riskOfEnteringDenominator
+    public static final int NO_RISK = 100;
+
+    public final int lanes;
+    public final int cells;
+    private Adjacency adjacency;
+    private int[] numNeighbours;
+
+    //KNOWLEDGE: at c*lanes + g, except wumpusFound which is at g
+    private int[] breezes;          //breezes felt next to the cell
+    private int[] stenches;         //stenches smelled next to the cell
+    private int[] numVisited;       //visited neighbours
+    private int[] visited;          //1 if the cell is visited
+    private int[] wumpusFound;      //1 if the game knows where the wumpus is
+
+    //RESULTS of evaluate, at c*lanes + g
+    private int[] fewBreezes;       //1 if the breezes leave the cell riskless
+    private int[] fewStenches;      //1 if the stenches leave the cell riskless
+    private int[] level;            //riskOfEnteringDenominator, at most Board.RISK_LEVELS-1
+    private int[] own;              //RiskLevel of a visited cell, NO_RISK for the others
+
+    public BatchKernel(int width, int height, int lanes) {
+        this.lanes = lanes;
+        this.cells = width*height;
+        adjacency = Adjacency.of(width, height);
+        numNeighbours = new int[cells];
+        for(int c=0;c<cells;c++) {
+            numNeighbours[c] = adjacency.numNeighbours(c);
+        }
+
+        int n = cells*lanes;
+        breezes = new int[n];
+        stenches = new int[n];
+        numVisited = new int[n];
+        visited = new int[n];
+        wumpusFound = new int[lanes];
+        fewBreezes = new int[n];
+        fewStenches = new int[n];
+        level = new int[n];
+        own = new int[n];
+    }
+
+    /**
+     * Forgets the game of lane g, for a new one.
+     */
+    public void clear(int g) {
+        for(int i=g;i<breezes.length;i+=lanes) {
+            breezes[i] = 0;
+            stenches[i] = 0;
+            numVisited[i] = 0;
+            visited[i] = 0;
+        }
+        wumpusFound[g] = 0;
+    }
+
+    /**
+     * The game of lane g visited cell c and perceived a breeze and/or a stench there.
+     */
+    public void visit(int g, int c, boolean breeze, boolean stench) {
+        visited[c*lanes + g] = 1;
+        for(int d=0;d<4;d++) {
+            int nb = adjacency.neighbour(c, d);
+            if(nb == -1) {
+                continue;
+            }
+            int i = nb*lanes + g;
+            if(breeze) {    breezes[i]++;   }
+            if(stench) {    stenches[i]++;  }
+            numVisited[i]++;
+        }
+    }
+
+    public void setWumpusFound(int g, boolean found) {
+        wumpusFound[g] = found ? 1 : 0;
+    }
+
+    /**
+     * Works out the rules for every cell of every game with the given costs.
+     */
+    public void evaluate(CostModel costs) {
+        int breezeSlack = costs.breezeSlack();
+        int stenchSlack = costs.stenchSlack();
+        int weight = costs.riskVisitedWeight();
+        int top = Board.RISK_LEVELS-1;
+
+        //Locals, so the JIT knows the arrays stay the same through the loops
+        int lanes = this.lanes;
+        int n = cells*lanes;
+        int[] breezes = this.breezes;
+        int[] stenches = this.stenches;
+        int[] numVisited = this.numVisited;
+        int[] visited = this.visited;
+        int[] fewBreezes = this.fewBreezes;
+        int[] fewStenches = this.fewStenches;
+        int[] level = this.level;
+        int[] own = this.own;
+
+        //isRiskless: b + slack < v and st + slack < v, as 0/1, the found wumpus is added in isRiskless
+        for(int i=0;i<n;i++) {
+            fewBreezes[i] = (breezes[i] + breezeSlack - numVisited[i]) >>> 31;
+        }
+        for(int i=0;i<n;i++) {
+            fewStenches[i] = (stenches[i] + stenchSlack - numVisited[i]) >>> 31;
+        }
+
+        //RiskLevel of the cell if it is visited, NO_RISK if not so it never is the lowest
+        for(int c=0;c<cells;c++) {
+            int nn = numNeighbours[c];
+            int from = c*lanes;
+            int to = from + lanes;
+            for(int i=from;i<to;i++) {
+                int mask = -visited[i];
+                own[i] = (Math.max(0, nn - weight*numVisited[i]) & mask) | (NO_RISK & ~mask);
+            }
+        }
+
+        //riskOfEnteringDenominator: the lowest RiskLevel over the neighbours
+        for(int i=0;i<n;i++) {
+            level[i] = top;
+        }
+        for(int c=0;c<cells;c++) {
+            int base = c*lanes;
+            for(int d=0;d<4;d++) {
+                int nb = adjacency.neighbour(c, d);
+                if(nb == -1) {
+                    continue;
+                }
+                int off = nb*lanes - base;
+                int to = base + lanes;
+                for(int i=base;i<to;i++) {
+                    level[i] = Math.min(level[i], own[i + off]);
+                }
+            }
+        }
+    }
+
+    public boolean isRiskless(int g, int c) {
+        int i = c*lanes + g;
+        return (fewBreezes[i] & (fewStenches[i] | wumpusFound[g])) != 0;
+    }
+
+    public int riskLevel(int g, int c) {
+        return level[c*lanes + g];
+    }
+}
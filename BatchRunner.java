@@ -0,0 +1,309 @@
+package wumpusworld;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays many seeded games of MyAgent in SimWorlds on all cores, without the
+ * GUI, and prints win rate, score distribution, actions per game and games
+ * per second.
+ *
+ * Usage: BatchRunner games [size] [pitChance] [seed] [threads] [maxTurns] [traceFile|-] [lanes] [rules]
+ *
+ * Game i is always played in the same world for the same seed, so two runs
+ * can be compared game by game. With a traceFile every game is recorded to
+ * it (see GameRecorder), in the order the games end.
+ *
+ * With more than one lane each thread plays that many games in lock step
+ * (see BatchAgents), which pays off with the counting rules (rules).
+ */
+public class BatchRunner {
+
+    //Games played by one task before it stops splitting
+    private static final int CHUNK = 256;
+
+    private int width;
+    private int height;
+    private double pitChance;
+    private long seed;
+    private int maxTurns;
+    private GameRecorder recorder;
+    private WorldCorpus corpus;
+    private int lanes = 1;
+
+    //One engine plays all the games, each game only has its own GameState
+    private AgentEngine engine = new AgentEngine(Trace.NONE);
+
+    public BatchRunner(int width, int height, double pitChance, long seed, int maxTurns) {
+        this.width = width;
+        this.height = height;
+        this.pitChance = pitChance;
+        this.seed = seed;
+        this.maxTurns = maxTurns;
+    }
+
+    /**
+     * Plays the worlds of a corpus instead of making them, game i in world i.
+     */
+    public BatchRunner(WorldCorpus corpus, int maxTurns) {
+        this(corpus.getWidth(), corpus.getHeight(), corpus.getPitChance(), corpus.getSeed(), maxTurns);
+        this.corpus = corpus;
+    }
+
+    /**
+     * Plays the games with the given engine instead of the default one.
+     */
+    public void setEngine(AgentEngine engine) {
+        this.engine = engine;
+    }
+
+    public AgentEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Plays lanes games at a time in lock step on each thread, 1 to play
+     * them one after the other.
+     */
+    public void setLanes(int lanes) {
+        this.lanes = lanes;
+    }
+
+    /**
+     * Records every game played from now on, null to stop recording.
+     */
+    public void setRecorder(GameRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Plays games 0 to games-1 on a pool with the given number of threads.
+     */
+    public BatchStats run(long games, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new Games(0, games));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A task that plays games from to to-1, for running on a pool of its own.
+     */
+    RecursiveTask<BatchStats> games(long from, long to) {
+        return new Games(from, to);
+    }
+
+    /**
+     * The world of game i.
+     */
+    public SimWorld world(long i) {
+        if(corpus != null) {
+            return corpus.world(i);
+        }
+        return SimWorld.generate(width, height, pitChance, new Random(gameSeed(seed, i)));
+    }
+
+    /**
+     * Plays game i and adds it to the stats.
+     */
+    public void play(long i, BatchStats stats) {
+        play(i, stats, null);
+    }
+
+    /**
+     * Plays game i with the agent of the last game, reset for this one, or
+     * a new agent if agent is null. Returns the agent, to play the next game with.
+     */
+    public MyAgent play(long i, BatchStats stats, MyAgent agent) {
+        SimWorld sw = world(i);
+        RecordingWorld rw = record(sw);
+        GameWorld gw = rw != null ? rw : sw;
+        if(agent == null) {
+            agent = new MyAgent(gw, width, height, engine);
+        }
+        else {
+            agent.reset(gw);
+        }
+
+        RuntimeException error = null;
+        int turns = 0;
+        try {
+            while(!sw.gameOver() && turns < maxTurns) {
+                agent.doAction();
+                turns++;
+            }
+        }
+        catch(RuntimeException e) {
+            error = e;
+        }
+
+        finish(i, sw, rw, turns, error, stats);
+        return agent;
+    }
+
+    /**
+     * Plays games from to to-1 in lock step, lanes at a time, and adds them
+     * to the stats. A lane that finishes its game takes the next one.
+     */
+    public void playBatched(long from, long to, BatchStats stats) {
+        BatchAgents batch = new BatchAgents(engine, width, height, lanes);
+        SimWorld[] sims = new SimWorld[lanes];
+        RecordingWorld[] recordings = new RecordingWorld[lanes];
+        int[] turns = new int[lanes];
+        long[] games = new long[lanes];
+        long next = from;
+        int running = 0;
+
+        for(int g=0;g<lanes && next<to;g++) {
+            startLane(batch, g, next++, sims, recordings, turns, games);
+            running++;
+        }
+        while(running > 0) {
+            batch.step();
+            for(int g=0;g<lanes;g++) {
+                if(sims[g] == null) {
+                    continue;
+                }
+                turns[g]++;
+                SimWorld sw = sims[g];
+                if(!batch.hasFailed(g) && !sw.gameOver() && turns[g] < maxTurns) {
+                    continue;
+                }
+                finish(games[g], sw, recordings[g], turns[g], batch.getError(g), stats);
+                if(next < to) {
+                    startLane(batch, g, next++, sims, recordings, turns, games);
+                }
+                else {
+                    batch.stop(g);
+                    sims[g] = null;
+                    running--;
+                }
+            }
+        }
+    }
+
+    private void startLane(BatchAgents batch, int g, long i, SimWorld[] sims, RecordingWorld[] recordings, int[] turns, long[] games) {
+        games[g] = i;
+        sims[g] = world(i);
+        recordings[g] = record(sims[g]);
+        turns[g] = 0;
+        batch.start(g, recordings[g] != null ? recordings[g] : sims[g]);
+    }
+
+    private RecordingWorld record(SimWorld sw) {
+        return recorder != null ? recorder.start(sw, width, height) : null;
+    }
+
+    //Adds game i, played in sw, to the stats and to the recording. error is what stopped the agent, or null
+    private void finish(long i, SimWorld sw, RecordingWorld rw, int turns, RuntimeException error, BatchStats stats) {
+        boolean timedOut = error == null && !sw.gameOver();
+        stats.add(sw.getScore(), sw.getActionCount(), sw.hasGold(), timedOut, error != null);
+        stats.keepError(i, error);
+
+        if(rw != null) {
+            try {
+                recorder.finish(rw);
+            }
+            catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Seed of game i, mixed so neighbouring games get unrelated worlds.
+     */
+    public static long gameSeed(long seed, long i) {
+        long z = seed + (i+1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    //Splits the game range in halves until it is small enough to play
+    private class Games extends RecursiveTask<BatchStats> {
+        private static final long serialVersionUID = 1L;
+
+        private long from;
+        private long to;
+
+        Games(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        protected BatchStats compute() {
+            if(to - from <= CHUNK) {
+                BatchStats stats = new BatchStats();
+                if(lanes > 1) {
+                    playBatched(from, to, stats);
+                    return stats;
+                }
+                MyAgent agent = null;
+                for(long i=from;i<to;i++) {
+                    agent = play(i, stats, agent);
+                }
+                return stats;
+            }
+
+            long mid = (from + to) >>> 1;
+            Games left = new Games(from, mid);
+            left.fork();
+            BatchStats stats = new Games(mid, to).compute();
+            stats.merge(left.join());
+            return stats;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.out.println("Usage: BatchRunner games [size] [pitChance] [seed] [threads] [maxTurns] [traceFile|-] [lanes] [rules]");
+            return;
+        }
+
+        int games = Integer.parseInt(args[0]);
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        double pitChance = args.length > 2 ? Double.parseDouble(args[2]) : 0.2;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        int maxTurns = args.length > 5 ? Integer.parseInt(args[5]) : 10*size*size;
+
+        BatchRunner runner = new BatchRunner(size, size, pitChance, seed, maxTurns);
+        AgentMetrics.SHARED.register("BatchRunner");
+        int lanes = args.length > 7 ? Integer.parseInt(args[7]) : 1;
+        runner.setLanes(lanes);
+        boolean rules = args.length > 8 && args[8].equals("rules");
+        if(rules) {
+            runner.setEngine(new AgentEngine(Trace.NONE, AgentEngine.NO_INFERENCE, DecisionCache.SHARED, AgentMetrics.SHARED));
+        }
+        GameRecorder recorder = null;
+        if(args.length > 6 && !args[6].equals("-")) {
+            recorder = new GameRecorder(new File(args[6]), runner.getEngine());
+            runner.setRecorder(recorder);
+        }
+
+        long start = System.nanoTime();
+        BatchStats stats;
+        try {
+            stats = runner.run(games, threads);
+        }
+        finally {
+            if(recorder != null) {
+                recorder.close();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(String.format("%dx%d, pit chance %.2f, seed %d, %d threads, %d lanes, %s",
+                size, size, pitChance, seed, threads, lanes, rules ? "counting rules" : "inference"));
+        System.out.print(stats.report(seconds));
+        System.out.print(AgentMetrics.SHARED.snapshot());
+    }
+}
@@ -0,0 +1,133 @@
+package wumpusworld;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Totals over a batch of games. Each worker fills its own BatchStats and
+ * they are merged at the end, so no locking is needed while playing.
+ */
+class BatchStats {
+
+    //Scores are counted in buckets of this width between MIN_SCORE and MAX_SCORE
+    public static final int BUCKET = 50;
+    public static final int MIN_SCORE = -5000;
+    public static final int MAX_SCORE = 1000;
+
+    public long games = 0;
+    public long wins = 0;           //games where we grabbed the gold
+    public long timeouts = 0;       //games stopped at the turn limit
+    public long errors = 0;         //games where the agent threw an exception
+    public Throwable firstError;    //exception of the lowest numbered game that threw one
+    public long errorGame = -1;     //number of that game
+
+    public long scoreSum = 0;
+    public double scoreSqSum = 0;
+    public int minScore = Integer.MAX_VALUE;
+    public int maxScore = Integer.MIN_VALUE;
+    public long actionSum = 0;
+    public long[] histogram = new long[(MAX_SCORE - MIN_SCORE) / BUCKET + 1];
+
+    public void add(int score, int actions, boolean won, boolean timedOut, boolean error) {
+        games++;
+        if(won) {       wins++;     }
+        if(timedOut) {  timeouts++; }
+        if(error) {     errors++;   }
+
+        scoreSum += score;
+        scoreSqSum += (double) score * score;
+        minScore = Math.min(minScore, score);
+        maxScore = Math.max(maxScore, score);
+        actionSum += actions;
+
+        int b = (Math.max(MIN_SCORE, Math.min(MAX_SCORE, score)) - MIN_SCORE) / BUCKET;
+        histogram[b]++;
+    }
+
+    /**
+     * Keeps e as the first error if game comes before the game of the one
+     * kept so far, so the report names the same game however the games were
+     * split between the workers.
+     */
+    public void keepError(long game, Throwable e) {
+        if(e != null && (firstError == null || game < errorGame)) {
+            firstError = e;
+            errorGame = game;
+        }
+    }
+
+    public void merge(BatchStats o) {
+        games += o.games;
+        wins += o.wins;
+        timeouts += o.timeouts;
+        errors += o.errors;
+        scoreSum += o.scoreSum;
+        scoreSqSum += o.scoreSqSum;
+        minScore = Math.min(minScore, o.minScore);
+        maxScore = Math.max(maxScore, o.maxScore);
+        actionSum += o.actionSum;
+        keepError(o.errorGame, o.firstError);
+        for(int i=0;i<histogram.length;i++) {
+            histogram[i] += o.histogram[i];
+        }
+    }
+
+    public double winRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    public double meanScore() {
+        return games == 0 ? 0 : (double) scoreSum / games;
+    }
+
+    public double scoreStdDev() {
+        if(games < 2) {
+            return 0;
+        }
+        double mean = meanScore();
+        return Math.sqrt(Math.max(0, (scoreSqSum - games*mean*mean) / (games - 1)));
+    }
+
+    public double meanActions() {
+        return games == 0 ? 0 : (double) actionSum / games;
+    }
+
+    /**
+     * Score at the given fraction (0-1) of the games, to the nearest bucket.
+     */
+    public int scorePercentile(double q) {
+        long target = (long) Math.ceil(q * games);
+        long seen = 0;
+        for(int i=0;i<histogram.length;i++) {
+            seen += histogram[i];
+            if(seen >= target && seen > 0) {
+                return MIN_SCORE + i*BUCKET;
+            }
+        }
+        return MAX_SCORE;
+    }
+
+    public String report(double seconds) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Games:          %d in %.2f s (%.0f games/s)%n", games, seconds, games / Math.max(seconds, 1e-9)));
+        sb.append(String.format("Win rate:       %.2f %%%n", 100*winRate()));
+        sb.append(String.format("Score:          mean %.1f, sd %.1f, min %d, max %d%n", meanScore(), scoreStdDev(), minScore, maxScore));
+        sb.append(String.format("Percentiles:    p10 %d, p50 %d, p90 %d (buckets of %d)%n",
+                scorePercentile(0.1), scorePercentile(0.5), scorePercentile(0.9), BUCKET));
+        sb.append(String.format("Actions/game:   %.1f%n", meanActions()));
+        sb.append(String.format("Timeouts:       %d, errors: %d%n", timeouts, errors));
+        if(firstError != null) {
+            StringWriter trace = new StringWriter();
+            firstError.printStackTrace(new PrintWriter(trace));
+            sb.append(String.format("First error:    game %d, %s", errorGame, trace));
+        }
+
+        sb.append("Score distribution:\n");
+        for(int i=0;i<histogram.length;i++) {
+            if(histogram[i] > 0) {
+                sb.append(String.format("  %6d  %d%n", MIN_SCORE + i*BUCKET, histogram[i]));
+            }
+        }
+        return sb.toString();
+    }
+}
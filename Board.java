@@ -0,0 +1,822 @@
+package wumpusworld;
+
+import java.util.ArrayList;
+
+/**
+ * What the agent knows about a board of any size.
+ *
+ * The travel status and the percepts are kept as CellSets so that questions
+ * like "all accessible cells" are bit operations. The per cell counters
+ * (breezes, stenches, visited neighbours) stay in the Cell objects.
+ * Cells are numbered x*height + y with x and y starting at 0.
+ *
+ * Boards of more than SPARSE_CELLS cells are sparse: their Cells are made
+ * in chunks of CHUNK x CHUNK cells the first time a cell of the chunk is
+ * asked for, and found through a ChunkMap, and their CellSets are paged.
+ * The cells we reach also get a slot, a number counting up from 0 that the
+ * search and inference use for their arrays. So a sparse board, and the
+ * work space used on it, grows with the part of the world we explored and
+ * not with the size of the world. On a dense board the slot is the index.
+ *
+ * UNDO: while a mark is open every change is written to an undo log, and
+ * undo(mark) takes the board back to what it was at the mark. Both cost
+ * as much as the changes made since the mark, not as the board, so a
+ * search can try moves on the board itself instead of on copies of it.
+ */
+class Board {
+
+    //Neighbour directions: up, left, right, down. Same order as the old bounds checks
+    public static final int[] DX = { 0, -1, 1,  0 };
+    public static final int[] DY = { 1,  0, 0, -1 };
+
+    //Boards with more cells than this are sparse
+    public static final int SPARSE_CELLS = CellSet.PAGED_CELLS;
+
+    //Side of a chunk of a sparse board, a power of two
+    public static final int CHUNK_SHIFT = 4;
+    public static final int CHUNK = 1 << CHUNK_SHIFT;
+
+    public int width;
+    public int height;
+    private int size;
+    private Cell[] cells;                   //every cell of a dense board, null if sparse
+    private ChunkMap<Cell[]> chunks;        //the chunks of a sparse board made so far
+    private int chunkRows;                  //chunks in a column of a sparse board
+
+    //SLOTS: the cell of each slot given so far
+    private Cell[] slotCells;
+    private int slotCount = 0;
+
+    //VERSION: goes up every time what we know changes, so results worked out
+    //from the board can be kept until it moves on. An undo gives a new version
+    //too, never one used before, see changed()
+    public int version = 0;
+    private int topVersion = 0;
+
+    //HASH: Zobrist hash of what we know, the XOR of a random key for every
+    //(feature, cell) that is set. Kept up to date by the methods that change it,
+    //so the same knowledge always gives the same hash, in any game
+    public static final int Z_VISITED = 0;
+    public static final int Z_BREEZE = 1;
+    public static final int Z_STENCH = 2;
+    public static final int Z_PIT = 3;
+    public static final int Z_WUMPUS = 4;
+    public static final int Z_PLAYER = 5;
+    //Features that are not about a cell, for the keys built on the hash. The
+    //"cell" is the width, the height or the lookahead depth
+    public static final int Z_WIDTH = 6;
+    public static final int Z_HEIGHT = 7;
+    public static final int Z_DEPTH = 8;
+    public long hash = 0;
+
+    //TRAVEL: where we have been and where we can reach
+    public CellSet visited;
+    public CellSet accessible;
+
+    //PERCEPTS: visited cells where we felt a breeze or smelled a stench
+    public CellSet breeze;
+    public CellSet stench;
+
+    //OBJECTS: cells known to hold a pit or the wumpus
+    public CellSet pit;
+    public CellSet wumpus;
+
+    //WUMPUS CANDIDATES: cells that can still hold the wumpus. A visited cell can not,
+    //a stench keeps only the cells next to it and a visited cell without stench rules
+    //out its neighbours. Kept up to date by visit, markStench and markNoStench.
+    //Until the first stench the set holds the cells ruled out, after it the candidates
+    private CellSet wumpusSet;
+    private boolean wumpusRuledOut = true;
+    private int wumpusCandidateCount;
+
+    //FRONTIER: the accessible cells as a list, so they can be walked without
+    //looking at the whole board. Cell.frontierPos is a cell's place in the list, -1 if not in it
+    private int[] frontier;
+    private int frontierSize = 0;
+
+    //RISK: risk level of each frontier cell is in Cell.risk (see AgentEngine.riskOfEnteringDenominator),
+    //here how many frontier cells there are at each level, highest level is safest
+    public static final int RISK_LEVELS = 5;
+    private int[] riskCount;
+
+    //UNDO LOG: three ints (U_ code and two values) for every change made since the
+    //oldest open mark, only written while a mark is open
+    private static final int U_MARK = 0;            //hash high, hash low
+    private static final int U_VISITED = 1;         //index
+    private static final int U_PIT = 2;             //index
+    private static final int U_WUMPUS = 3;          //index
+    private static final int U_BREEZE = 4;          //index
+    private static final int U_STENCH = 5;          //index
+    private static final int U_CANDIDATE = 6;       //index, the bit in wumpusSet was flipped
+    private static final int U_CANDIDATES = 7;      //wumpusRuledOut, wumpusCandidateCount before
+    private static final int U_ADD_FRONTIER = 8;    //index, risk before
+    private static final int U_REMOVE_FRONTIER = 9; //index, place in the list
+    private static final int U_RISK = 10;           //index, risk before
+    private static final int U_SLOT = 11;           //index
+    private static final int U_COUNTS = 12;         //index, breeze and stench bits
+    private int[] undoLog;
+    private int logSize = 0;
+    private int openMarks = 0;
+
+    //NEIGHBOURS: shared by every dense board of this size, null on a sparse board
+    private Adjacency adjacency;
+
+    public Board(int width, int height) {
+        this(width, height, (long) width*height > SPARSE_CELLS);
+    }
+
+    /**
+     * A board that is sparse or dense whatever its size.
+     */
+    Board(int width, int height, boolean sparse) {
+        if((long) width*height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A board has at most " + Integer.MAX_VALUE + " cells, not " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+
+        int n = width*height;
+        size = n;
+        visited = new CellSet(n);
+        accessible = new CellSet(n);
+        breeze = new CellSet(n);
+        stench = new CellSet(n);
+        pit = new CellSet(n);
+        wumpus = new CellSet(n);
+        wumpusSet = new CellSet(n);
+        wumpusCandidateCount = n;
+
+        frontier = new int[Math.min(n, 64)];
+        riskCount = new int[RISK_LEVELS];
+
+        if(sparse) {
+            chunks = new ChunkMap<>();
+            chunkRows = (height + CHUNK - 1) >>> CHUNK_SHIFT;
+            slotCells = new Cell[Math.min(n, 64)];
+            return;
+        }
+
+        //The number of neighbours of each cell comes from the shared table
+        adjacency = Adjacency.of(width, height);
+        cells = new Cell[n];
+        for(int x=0;x<width;x++) {
+            for(int y=0;y<height;y++) {
+                int i = index(x, y);
+                Cell c = new Cell(x, y, adjacency.numNeighbours(i));
+                c.index = i;
+                c.slot = i;
+                cells[i] = c;
+            }
+        }
+        slotCells = cells;
+        slotCount = n;
+    }
+
+    public boolean isSparse() {
+        return cells == null;
+    }
+
+    /**
+     * Forgets everything, for a new game on a board of the same size. The
+     * cells and sets of a dense board are kept, only cleared, a sparse board
+     * lets its chunks go. The version keeps going up, so results worked out
+     * from the old game are not taken for the new one.
+     */
+    public void reset() {
+        changed();
+        hash = 0;
+        visited.clear();
+        accessible.clear();
+        breeze.clear();
+        stench.clear();
+        pit.clear();
+        wumpus.clear();
+        wumpusSet.clear();
+        wumpusRuledOut = true;
+        wumpusCandidateCount = size;
+        logSize = 0;
+        openMarks = 0;
+
+        frontierSize = 0;
+        for(int l=0;l<RISK_LEVELS;l++) {
+            riskCount[l] = 0;
+        }
+
+        if(cells == null) {
+            chunks.clear();
+            for(int s=0;s<slotCount;s++) {
+                slotCells[s] = null;
+            }
+            slotCount = 0;
+            return;
+        }
+        for(int i=0;i<cells.length;i++) {
+            Cell c = cells[i];
+            c.numBreezes = 0;
+            c.numStenches = 0;
+            c.numVisited = 0;
+            c.gold = false;
+            c.frontierPos = -1;
+            c.risk = 0;
+        }
+    }
+
+    /**
+     * A board that knows the same as this one, for trying out moves without
+     * changing this one.
+     */
+    public Board copy() {
+        Board b = new Board(width, height, cells == null);
+        b.version = version;
+        b.topVersion = topVersion;
+        b.hash = hash;
+        b.visited.copyFrom(visited);
+        b.accessible.copyFrom(accessible);
+        b.breeze.copyFrom(breeze);
+        b.stench.copyFrom(stench);
+        b.pit.copyFrom(pit);
+        b.wumpus.copyFrom(wumpus);
+        b.wumpusSet.copyFrom(wumpusSet);
+        b.wumpusRuledOut = wumpusRuledOut;
+        b.wumpusCandidateCount = wumpusCandidateCount;
+        b.frontier = frontier.clone();
+        b.frontierSize = frontierSize;
+        System.arraycopy(riskCount, 0, b.riskCount, 0, RISK_LEVELS);
+
+        if(cells != null) {
+            for(int i=0;i<cells.length;i++) {
+                copyCell(cells[i], b.cells[i]);
+            }
+            return b;
+        }
+        for(int k=0;k<chunks.capacity();k++) {
+            Cell[] from = chunks.valueAt(k);
+            if(from == null) {
+                continue;
+            }
+            Cell[] to = new Cell[from.length];
+            for(int j=0;j<from.length;j++) {
+                Cell c = from[j];
+                if(c != null) {
+                    to[j] = new Cell(c.px, c.py, c.numNeighbours);
+                    to[j].index = c.index;
+                    copyCell(c, to[j]);
+                }
+            }
+            b.chunks.put(chunks.keyAt(k), to);
+        }
+        b.slotCells = new Cell[slotCells.length];
+        for(int s=0;s<slotCount;s++) {
+            b.slotCells[s] = b.get(slotCells[s].index);
+        }
+        b.slotCount = slotCount;
+        return b;
+    }
+
+    private static void copyCell(Cell from, Cell to) {
+        to.numBreezes = from.numBreezes;
+        to.numStenches = from.numStenches;
+        to.numVisited = from.numVisited;
+        to.gold = from.gold;
+        to.slot = from.slot;
+        to.frontierPos = from.frontierPos;
+        to.risk = from.risk;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int index(int x, int y) {
+        return x*height + y;
+    }
+
+    public boolean inside(int x, int y) {
+        return x > -1 && x < width && y > -1 && y < height;
+    }
+
+    public Cell get(int x, int y) {
+        return get(index(x, y));
+    }
+
+    public Cell get(int index) {
+        if(cells != null) {
+            return cells[index];
+        }
+        int x = index / height;
+        int y = index - x*height;
+        int key = (x >>> CHUNK_SHIFT) * chunkRows + (y >>> CHUNK_SHIFT);
+        Cell[] chunk = chunks.get(key);
+        if(chunk == null) {
+            chunk = newChunk(x >>> CHUNK_SHIFT, y >>> CHUNK_SHIFT);
+            chunks.put(key, chunk);
+        }
+        return chunk[(x & (CHUNK-1)) << CHUNK_SHIFT | (y & (CHUNK-1))];
+    }
+
+    /**
+     * Number of neighbours cell (x, y) has inside a board of the given size.
+     */
+    static int numNeighbours(int width, int height, int x, int y) {
+        //Reduce number of neighbours by one for each wall the cell is adjecent to
+        int nN = 4;
+        if(x == 0) {   nN--;   }
+        if(x == width-1) {   nN--;   }
+        if(y == 0) {   nN--;   }
+        if(y == height-1) {   nN--;   }
+        return nN;
+    }
+
+    //The cells of chunk (cx, cy) of a sparse board, null past the edge of the board
+    private Cell[] newChunk(int cx, int cy) {
+        Cell[] chunk = new Cell[CHUNK*CHUNK];
+        for(int dx=0;dx<CHUNK;dx++) {
+            for(int dy=0;dy<CHUNK;dy++) {
+                int x = (cx << CHUNK_SHIFT) + dx;
+                int y = (cy << CHUNK_SHIFT) + dy;
+                if(!inside(x, y)) {
+                    continue;
+                }
+                Cell c = new Cell(x, y, numNeighbours(width, height, x, y));
+                c.index = index(x, y);
+                chunk[dx << CHUNK_SHIFT | dy] = c;
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * The neighbour of c in direction d (see DX and DY), null if it is outside the board.
+     */
+    public Cell neighbour(Cell c, int d) {
+        if(adjacency != null) {
+            int i = adjacency.neighbour(c.index, d);
+            return i == -1 ? null : cells[i];
+        }
+        int nx = c.px + DX[d];
+        int ny = c.py + DY[d];
+        if(!inside(nx, ny)) {
+            return null;
+        }
+        return get(index(nx, ny));
+    }
+
+    //Slots--------------------------------------------------------------------
+    //Every visited and accessible cell has one, see the class comment
+
+    /**
+     * Number of slots given, the arrays indexed by slot must be this long.
+     */
+    public int slotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Slot of the cell with the given index, -1 if it has none.
+     */
+    public int slot(int index) {
+        return cells != null ? index : get(index).slot;
+    }
+
+    public Cell atSlot(int slot) {
+        return slotCells[slot];
+    }
+
+    private void giveSlot(Cell c) {
+        if(c.slot != -1) {
+            return;
+        }
+        if(slotCount == slotCells.length) {
+            Cell[] bigger = new Cell[2*slotCount];
+            System.arraycopy(slotCells, 0, bigger, 0, slotCount);
+            slotCells = bigger;
+        }
+        c.slot = slotCount;
+        slotCells[slotCount++] = c;
+        log(U_SLOT, c.index, 0);
+    }
+
+    public int travel(Cell c) {
+        if(visited.get(c.index)) {
+            return Cell.VISITED;
+        }
+        if(accessible.get(c.index)) {
+            return Cell.ACCESSIBLE;
+        }
+        return Cell.UNDISCOVERED;
+    }
+
+    public void markPit(Cell c) {
+        if(!pit.get(c.index)) {
+            pit.set(c.index);
+            hash ^= zobrist(Z_PIT, c.index);
+            changed();
+            log(U_PIT, c.index, 0);
+        }
+    }
+
+    public void markWumpus(Cell c) {
+        if(!wumpus.get(c.index)) {
+            wumpus.set(c.index);
+            hash ^= zobrist(Z_WUMPUS, c.index);
+            changed();
+            log(U_WUMPUS, c.index, 0);
+        }
+    }
+
+    /**
+     * Stores the breeze felt in the visited cell c.
+     */
+    public void markBreeze(Cell c) {
+        if(!breeze.get(c.index)) {
+            breeze.set(c.index);
+            hash ^= zobrist(Z_BREEZE, c.index);
+            changed();
+            log(U_BREEZE, c.index, 0);
+        }
+    }
+
+    /**
+     * Stores the stench smelled in the visited cell c.
+     */
+    public void markStench(Cell c) {
+        if(!stench.get(c.index)) {
+            stench.set(c.index);
+            hash ^= zobrist(Z_STENCH, c.index);
+            changed();
+            log(U_STENCH, c.index, 0);
+
+            //Only the neighbours of c are left, at most four so we put them back by hand.
+            //Bit d of keep is set if the neighbour in direction d stays
+            int keep = 0;
+            for(int d=0;d<4;d++) {
+                Cell nb = neighbour(c, d);
+                if(nb != null && isWumpusCandidate(nb.index)) {
+                    keep |= 1 << d;
+                }
+            }
+            log(U_CANDIDATES, wumpusRuledOut ? 1 : 0, wumpusCandidateCount);
+            if(openMarks > 0) {
+                for(int i=wumpusSet.nextSetBit(0);i!=-1;i=wumpusSet.nextSetBit(i+1)) {
+                    log(U_CANDIDATE, i, 0);
+                }
+            }
+            wumpusSet.clear();
+            wumpusRuledOut = false;
+            wumpusCandidateCount = 0;
+            for(int d=0;d<4;d++) {
+                if((keep & (1 << d)) != 0) {
+                    wumpusSet.set(neighbour(c, d).index);
+                    log(U_CANDIDATE, neighbour(c, d).index, 0);
+                    wumpusCandidateCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores that the visited cell c has no stench, none of its neighbours holds the wumpus.
+     */
+    public void markNoStench(Cell c) {
+        for(int d=0;d<4;d++) {
+            Cell nb = neighbour(c, d);
+            if(nb != null) {
+                ruleOutWumpus(nb.index);
+            }
+        }
+    }
+
+    private void ruleOutWumpus(int i) {
+        if(!isWumpusCandidate(i)) {
+            return;
+        }
+        log(U_CANDIDATES, wumpusRuledOut ? 1 : 0, wumpusCandidateCount);
+        log(U_CANDIDATE, i, 0);
+        if(wumpusRuledOut) {
+            wumpusSet.set(i);
+        }
+        else {
+            wumpusSet.clear(i);
+        }
+        wumpusCandidateCount--;
+    }
+
+    public boolean isWumpusCandidate(int i) {
+        return wumpusSet.get(i) != wumpusRuledOut;
+    }
+
+    /**
+     * Index of a cell that can hold the wumpus, the only one when
+     * wumpusCandidateCount is 1. -1 if there is none.
+     */
+    public int wumpusCandidate() {
+        if(!wumpusRuledOut) {
+            return wumpusSet.nextSetBit(0);
+        }
+        //Nothing smelled yet, every cell not ruled out. Only a tiny board gets here with one left
+        for(int i=0;i<size;i++) {
+            if(!wumpusSet.get(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Number of cells that can still hold the wumpus, 0 if the percepts do not fit any.
+     */
+    public int wumpusCandidateCount() {
+        return wumpusCandidateCount;
+    }
+
+    /**
+     * Counts the percepts of the visited cell c in its neighbours: each has
+     * one more visited neighbour, and one more breeze or stench next to it
+     * if we felt one in c.
+     */
+    public void countPercepts(Cell c, boolean breeze, boolean stench) {
+        log(U_COUNTS, c.index, (breeze ? 1 : 0) | (stench ? 2 : 0));
+        for(int d=0;d<4;d++) {
+            Cell nb = neighbour(c, d);
+            if(nb == null) {
+                continue;
+            }
+            if(breeze) {    nb.numBreezes++;    }
+            if(stench) {    nb.numStenches++;   }
+            nb.numVisited++;
+        }
+    }
+
+    //Version and undo-----------------------------------------------------------
+
+    //A version no board state had before
+    private void changed() {
+        version = ++topVersion;
+    }
+
+    /**
+     * Opens a mark, from now on the changes are logged until it is undone.
+     * Marks are undone in the reverse order they were made.
+     *
+     * @return The mark, to give to undo
+     */
+    public int mark() {
+        openMarks++;
+        log(U_MARK, (int) (hash >>> 32), (int) hash);
+        return logSize - 3;
+    }
+
+    /**
+     * Takes the board back to what it knew when the mark was made, and
+     * closes the mark and every mark made after it.
+     */
+    public void undo(int mark) {
+        while(logSize > mark) {
+            logSize -= 3;
+            int a = undoLog[logSize+1];
+            int b = undoLog[logSize+2];
+            switch(undoLog[logSize]) {
+                case U_MARK:
+                    hash = (long) a << 32 | (b & 0xFFFFFFFFL);
+                    openMarks--;
+                    break;
+                case U_VISITED:     visited.clear(a);   break;
+                case U_PIT:         pit.clear(a);       break;
+                case U_WUMPUS:      wumpus.clear(a);    break;
+                case U_BREEZE:      breeze.clear(a);    break;
+                case U_STENCH:      stench.clear(a);    break;
+                case U_CANDIDATE:
+                    if(wumpusSet.get(a)) {
+                        wumpusSet.clear(a);
+                    }
+                    else {
+                        wumpusSet.set(a);
+                    }
+                    break;
+                case U_CANDIDATES:
+                    wumpusRuledOut = a == 1;
+                    wumpusCandidateCount = b;
+                    break;
+                case U_ADD_FRONTIER:
+                    undoAddFrontier(get(a), b);
+                    break;
+                case U_REMOVE_FRONTIER:
+                    undoRemoveFrontier(get(a), b);
+                    break;
+                case U_RISK: {
+                    Cell c = get(a);
+                    riskCount[c.risk]--;
+                    c.risk = b;
+                    riskCount[b]++;
+                    break;
+                }
+                case U_SLOT: {
+                    Cell c = get(a);
+                    c.slot = -1;
+                    slotCells[--slotCount] = null;
+                    break;
+                }
+                case U_COUNTS:
+                    undoCounts(get(a), (b & 1) != 0, (b & 2) != 0);
+                    break;
+                default:
+                    throw new IllegalStateException("Bad undo log entry " + undoLog[logSize]);
+            }
+        }
+        changed();
+    }
+
+    private void log(int op, int a, int b) {
+        if(openMarks == 0) {
+            return;
+        }
+        if(undoLog == null || logSize + 3 > undoLog.length) {
+            int[] bigger = new int[undoLog == null ? 96 : 2*undoLog.length];
+            if(undoLog != null) {
+                System.arraycopy(undoLog, 0, bigger, 0, logSize);
+            }
+            undoLog = bigger;
+        }
+        undoLog[logSize] = op;
+        undoLog[logSize+1] = a;
+        undoLog[logSize+2] = b;
+        logSize += 3;
+    }
+
+    //c was put last in the list, the changes after it are already undone
+    private void undoAddFrontier(Cell c, int risk) {
+        accessible.clear(c.index);
+        riskCount[c.risk]--;
+        frontierSize--;
+        c.frontierPos = -1;
+        c.risk = risk;
+    }
+
+    //c was taken from pos and the last cell moved into its place, move that one back to the end
+    private void undoRemoveFrontier(Cell c, int pos) {
+        accessible.set(c.index);
+        riskCount[c.risk]++;
+        if(pos < frontierSize) {
+            int moved = frontier[pos];
+            frontier[frontierSize] = moved;
+            get(moved).frontierPos = frontierSize;
+        }
+        frontier[pos] = c.index;
+        c.frontierPos = pos;
+        frontierSize++;
+    }
+
+    private void undoCounts(Cell c, boolean breeze, boolean stench) {
+        for(int d=0;d<4;d++) {
+            Cell nb = neighbour(c, d);
+            if(nb == null) {
+                continue;
+            }
+            if(breeze) {    nb.numBreezes--;    }
+            if(stench) {    nb.numStenches--;   }
+            nb.numVisited--;
+        }
+    }
+
+    /**
+     * The random key of a feature in cell i. The keys are the same for every
+     * board, worked out from the feature and cell by a SplitMix step instead
+     * of kept in a table, so boards of any size can use them.
+     */
+    public static long zobrist(int feature, int i) {
+        long z = ((long) feature << 32 | i) * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public boolean isPit(Cell c) {
+        return pit.get(c.index);
+    }
+
+    public boolean isWumpus(Cell c) {
+        return wumpus.get(c.index);
+    }
+
+    /**
+     * Marks c as visited. c leaves the frontier and its neighbours that are
+     * not visited become accessible.
+     */
+    public void visit(Cell c) {
+        changed();
+        visited.set(c.index);
+        hash ^= zobrist(Z_VISITED, c.index);
+        log(U_VISITED, c.index, 0);
+        giveSlot(c);
+        removeFrontier(c);
+        ruleOutWumpus(c.index);
+
+        for(int d=0;d<4;d++) {
+            Cell nb = neighbour(c, d);
+            if(nb != null && !visited.get(nb.index) && !accessible.get(nb.index)) {
+                addFrontier(nb);
+            }
+        }
+    }
+
+    private void addFrontier(Cell c) {
+        giveSlot(c);
+        log(U_ADD_FRONTIER, c.index, c.risk);
+        accessible.set(c.index);
+        if(frontierSize == frontier.length) {
+            int[] bigger = new int[2*frontierSize];
+            System.arraycopy(frontier, 0, bigger, 0, frontierSize);
+            frontier = bigger;
+        }
+        c.frontierPos = frontierSize;
+        frontier[frontierSize++] = c.index;
+        c.risk = 0;
+        riskCount[0]++;
+    }
+
+    private void removeFrontier(Cell c) {
+        int pos = c.frontierPos;
+        if(pos == -1) {
+            return;
+        }
+        log(U_REMOVE_FRONTIER, c.index, pos);
+        accessible.clear(c.index);
+        riskCount[c.risk]--;
+
+        //Move the last cell of the list into the hole
+        int last = frontier[--frontierSize];
+        frontier[pos] = last;
+        get(last).frontierPos = pos;
+        c.frontierPos = -1;
+    }
+
+    public int frontierSize() {
+        return frontierSize;
+    }
+
+    /**
+     * Index of the i:th cell in the frontier list.
+     */
+    public int frontierAt(int i) {
+        return frontier[i];
+    }
+
+    /**
+     * The accessible cells, in no particular order.
+     */
+    public ArrayList<Cell> frontierCells() {
+        ArrayList<Cell> cList = new ArrayList<>(frontierSize);
+        for(int i=0;i<frontierSize;i++) {
+            cList.add(get(frontier[i]));
+        }
+        return cList;
+    }
+
+    /**
+     * Moves a frontier cell to another risk level. Levels above the top one
+     * (a cell with no visited neighbour) count as the top level.
+     */
+    public void setRisk(Cell c, int level) {
+        if(c.frontierPos == -1) {
+            return;
+        }
+        level = Math.min(level, RISK_LEVELS-1);
+        log(U_RISK, c.index, c.risk);
+        riskCount[c.risk]--;
+        c.risk = level;
+        riskCount[level]++;
+    }
+
+    public int riskLevel(Cell c) {
+        return c.risk;
+    }
+
+    /**
+     * The highest risk level any frontier cell has, -1 if the frontier is empty.
+     */
+    public int highestRiskLevel() {
+        for(int l=RISK_LEVELS-1;l>=0;l--) {
+            if(riskCount[l] > 0) {
+                return l;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Neighbours of c that have the given travel status (VISITED or ACCESSIBLE).
+     */
+    public ArrayList<Cell> getNeighbours(Cell c, int travelStatus) {
+        ArrayList<Cell> nbList = new ArrayList<>();
+        CellSet s = travelStatus == Cell.VISITED ? visited : accessible;
+
+        for(int d=0;d<4;d++) {
+            Cell nb = neighbour(c, d);
+            if(nb != null && s.get(nb.index)) {
+                nbList.add(nb);
+            }
+        }
+
+        return nbList;
+    }
+}
@@ -0,0 +1,50 @@
+package wumpusworld;
+
+/**
+ * How much work a turn may do in anytime mode: a deadline, a number of
+ * work units, or both. A work unit is one node expanded by the path search
+ * or one pit assignment tried by the inference.
+ *
+ * The work is paid for in chunks, and the clock is only read when a chunk
+ * is paid, so checking the budget costs next to nothing.
+ */
+class Budget {
+
+    private long deadline;      //System.nanoTime() to stop at
+    private long units;         //work units left
+    private boolean exhausted = false;
+
+    public Budget(long deadline, long units) {
+        this.deadline = deadline;
+        this.units = units;
+    }
+
+    /**
+     * A budget of the given time from now.
+     */
+    public static Budget nanos(long nanos) {
+        return new Budget(System.nanoTime() + nanos, Long.MAX_VALUE);
+    }
+
+    /**
+     * A budget of the given number of work units, with no deadline.
+     */
+    public static Budget units(long units) {
+        return new Budget(Long.MAX_VALUE, units);
+    }
+
+    /**
+     * Pays for work done, returns false when the budget has run out.
+     */
+    public boolean spend(long work) {
+        units -= work;
+        if(units < 0 || (deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0)) {
+            exhausted = true;
+        }
+        return !exhausted;
+    }
+
+    public boolean exhausted() {
+        return exhausted;
+    }
+}
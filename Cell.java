@@ -0,0 +1,50 @@
+package wumpusworld;
+
+/**
+ * What the agent knows about one space of the board.
+ */
+class Cell {
+    //DEFAULTED: Tells us if the default constructor was used or not
+    public boolean defaulted = true;
+
+    //POS: A cell's position on the grid. default values -1
+    public int px = -1;
+    public int py = -1;
+
+    //INDEX: A cell's number on the Board, x*height + y
+    public int index = -1;
+
+    //SLOT: A cell's number in the arrays of the search and inference, the same as the
+    //index on a dense Board, given when the cell is first reached on a sparse one, -1 before
+    public int slot = -1;
+
+    //FRONTIER: Kept by the Board, the cell's place in the frontier list (-1 if not in it) and its risk level
+    int frontierPos = -1;
+    int risk = 0;
+
+    //TRAVEL: Where we have been and where we can reach, kept as CellSets in the Board
+    public static final int VISITED = 2;        //Visited cells are cells we have gone to
+    public static final int ACCESSIBLE = 1;     //Accessible cells are adjecent to visited cells
+    public static final int UNDISCOVERED = 0;   //The remaining cells
+
+    //NEAR PERCEPTS: How many of the adjecent spaces that display certain properties
+    public int numBreezes = 0;
+    public int numStenches = 0;
+    public int numVisited = 0;
+    public int numNeighbours = 0;
+
+    //OBJECTS: What a cell contains, pits and the wumpus are kept as CellSets in the Board
+    public boolean gold = false;
+
+    //CONSTRUCTORS
+    public Cell() {
+        defaulted = true;
+    }
+
+    public Cell(int x, int y, int nN) {
+        defaulted = false;
+        px = x;
+        py = y;
+        numNeighbours = nN;
+    }
+}
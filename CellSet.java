@@ -0,0 +1,270 @@
+package wumpusworld;
+
+/**
+ * A set of cells packed as bits in long words, one bit per cell index.
+ * Small boards fit in one word, bigger boards just use more words.
+ *
+ * Sets of more than PAGED_CELLS cells keep their words in pages of
+ * PAGE_CELLS cells that are only made when a cell in them is first set, so
+ * a set on a huge board costs memory for the cells in it, not for the
+ * board. A second level of bits tells which pages there are, so walking
+ * the set skips the empty parts.
+ */
+class CellSet {
+
+    //Sets bigger than this are paged
+    public static final int PAGED_CELLS = 1 << 20;
+
+    //Cells in a page, a power of two
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_CELLS = 1 << PAGE_SHIFT;
+    private static final int PAGE_WORDS = PAGE_CELLS >>> 6;
+
+    private long[] words;       //all the words of a small set, null if paged
+    private long[][] pages;     //pages of a big set, null where no cell was set
+    private long[] made;        //bit p is set if page p was made
+    private int size;           //number of cells the set can hold
+
+    public CellSet(int size) {
+        this.size = size;
+        if(size > PAGED_CELLS) {
+            int n = (size + PAGE_CELLS - 1) >>> PAGE_SHIFT;
+            pages = new long[n][];
+            made = new long[(n + 63) >>> 6];
+        }
+        else {
+            words = new long[(size + 63) >>> 6];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isPaged() {
+        return words == null;
+    }
+
+    public boolean get(int i) {
+        if(words != null) {
+            return (words[i >>> 6] & (1L << i)) != 0;
+        }
+        long[] page = pages[i >>> PAGE_SHIFT];
+        return page != null && (page[(i >>> 6) & (PAGE_WORDS-1)] & (1L << i)) != 0;
+    }
+
+    public void set(int i) {
+        if(words != null) {
+            words[i >>> 6] |= 1L << i;
+            return;
+        }
+        page(i >>> PAGE_SHIFT)[(i >>> 6) & (PAGE_WORDS-1)] |= 1L << i;
+    }
+
+    public void clear(int i) {
+        if(words != null) {
+            words[i >>> 6] &= ~(1L << i);
+            return;
+        }
+        long[] page = pages[i >>> PAGE_SHIFT];
+        if(page != null) {
+            page[(i >>> 6) & (PAGE_WORDS-1)] &= ~(1L << i);
+        }
+    }
+
+    //Page p, made if there is none
+    private long[] page(int p) {
+        long[] page = pages[p];
+        if(page == null) {
+            page = new long[PAGE_WORDS];
+            pages[p] = page;
+            made[p >>> 6] |= 1L << p;
+        }
+        return page;
+    }
+
+    //Next page at or after p that was made, -1 if there is none
+    private int nextPage(int p) {
+        int w = p >>> 6;
+        if(w >= made.length) {
+            return -1;
+        }
+        long word = made[w] & (-1L << p);
+        while(true) {
+            if(word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if(++w == made.length) {
+                return -1;
+            }
+            word = made[w];
+        }
+    }
+
+    /**
+     * Empties the set. A paged set gives its pages back.
+     */
+    public void clear() {
+        if(words != null) {
+            for(int i=0;i<words.length;i++) {
+                words[i] = 0;
+            }
+            return;
+        }
+        for(int p=nextPage(0);p!=-1;p=nextPage(p+1)) {
+            pages[p] = null;
+        }
+        for(int i=0;i<made.length;i++) {
+            made[i] = 0;
+        }
+    }
+
+    public boolean isEmpty() {
+        return nextSetBit(0) == -1;
+    }
+
+    public int cardinality() {
+        int n = 0;
+        if(words != null) {
+            for(int i=0;i<words.length;i++) {
+                n += Long.bitCount(words[i]);
+            }
+            return n;
+        }
+        for(int p=nextPage(0);p!=-1;p=nextPage(p+1)) {
+            long[] page = pages[p];
+            for(int i=0;i<PAGE_WORDS;i++) {
+                n += Long.bitCount(page[i]);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Index of the first cell in the set at or after from, -1 if there is none.
+     */
+    public int nextSetBit(int from) {
+        if(from >= size) {
+            return -1;
+        }
+        if(words == null) {
+            return nextSetBitPaged(from);
+        }
+        int w = from >>> 6;
+        long word = words[w] & (-1L << from);
+        while(true) {
+            if(word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if(++w == words.length) {
+                return -1;
+            }
+            word = words[w];
+        }
+    }
+
+    private int nextSetBitPaged(int from) {
+        int p = from >>> PAGE_SHIFT;
+        int w = (from >>> 6) & (PAGE_WORDS-1);
+        long mask = -1L << from;
+        for(p=nextPage(p);p!=-1;p=nextPage(p+1)) {
+            //A later page than the one of from is looked at from its start
+            if(p != from >>> PAGE_SHIFT) {
+                w = 0;
+                mask = -1L;
+            }
+            long[] page = pages[p];
+            for(;w<PAGE_WORDS;w++) {
+                long word = page[w] & mask;
+                if(word != 0) {
+                    return (p << PAGE_SHIFT) + (w << 6) + Long.numberOfTrailingZeros(word);
+                }
+                mask = -1L;
+            }
+        }
+        return -1;
+    }
+
+    //Set operations, the other set must be of the same size------------------
+    public void copyFrom(CellSet o) {
+        if(words != null) {
+            System.arraycopy(o.words, 0, words, 0, words.length);
+            return;
+        }
+        clear();
+        for(int p=o.nextPage(0);p!=-1;p=o.nextPage(p+1)) {
+            System.arraycopy(o.pages[p], 0, page(p), 0, PAGE_WORDS);
+        }
+    }
+
+    public void and(CellSet o) {
+        if(words == null) {
+            for(int p=nextPage(0);p!=-1;p=nextPage(p+1)) {
+                long[] other = o.pages[p];
+                for(int i=0;i<PAGE_WORDS;i++) {
+                    pages[p][i] &= other != null ? other[i] : 0;
+                }
+            }
+            return;
+        }
+        for(int i=0;i<words.length;i++) {
+            words[i] &= o.words[i];
+        }
+    }
+
+    public void or(CellSet o) {
+        if(words == null) {
+            for(int p=o.nextPage(0);p!=-1;p=o.nextPage(p+1)) {
+                long[] page = page(p);
+                for(int i=0;i<PAGE_WORDS;i++) {
+                    page[i] |= o.pages[p][i];
+                }
+            }
+            return;
+        }
+        for(int i=0;i<words.length;i++) {
+            words[i] |= o.words[i];
+        }
+    }
+
+    public void andNot(CellSet o) {
+        if(words == null) {
+            for(int p=nextPage(0);p!=-1;p=nextPage(p+1)) {
+                long[] other = o.pages[p];
+                if(other == null) {
+                    continue;
+                }
+                for(int i=0;i<PAGE_WORDS;i++) {
+                    pages[p][i] &= ~other[i];
+                }
+            }
+            return;
+        }
+        for(int i=0;i<words.length;i++) {
+            words[i] &= ~o.words[i];
+        }
+    }
+
+    public boolean intersects(CellSet o) {
+        if(words == null) {
+            for(int p=nextPage(0);p!=-1;p=nextPage(p+1)) {
+                long[] other = o.pages[p];
+                if(other == null) {
+                    continue;
+                }
+                for(int i=0;i<PAGE_WORDS;i++) {
+                    if((pages[p][i] & other[i]) != 0) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        for(int i=0;i<words.length;i++) {
+            if((words[i] & o.words[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,105 @@
+package wumpusworld;
+
+/**
+ * A hash map from int keys to objects, with open addressing on plain
+ * arrays so a lookup does not box the key or allocate. Used by the sparse
+ * boards to find the chunk of a cell, see Board.
+ *
+ * Entries are never removed one by one, only all at once with clear.
+ */
+class ChunkMap<T> {
+
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private Object[] values;
+    private int count = 0;
+    private int mask;
+
+    public ChunkMap() {
+        allocate(16);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        for(int i=0;i<capacity;i++) {
+            keys[i] = EMPTY;
+        }
+    }
+
+    //First slot to look in for a key, the keys are mixed so neighbouring chunks spread out
+    private int home(int key) {
+        return (key * 0x9E3779B9 >>> 16) & mask;
+    }
+
+    /**
+     * The value of the key, null if there is none. Keys must not be negative.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int key) {
+        for(int i=home(key);;i=(i+1)&mask) {
+            if(keys[i] == key) {
+                return (T) values[i];
+            }
+            if(keys[i] == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    public void put(int key, T value) {
+        //Keep the table at most half full so the runs stay short
+        if(2*(count+1) > keys.length) {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            allocate(2*keys.length);
+            count = 0;
+            for(int i=0;i<oldKeys.length;i++) {
+                if(oldKeys[i] != EMPTY) {
+                    insert(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+        insert(key, value);
+    }
+
+    private void insert(int key, Object value) {
+        for(int i=home(key);;i=(i+1)&mask) {
+            if(keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            if(keys[i] == EMPTY) {
+                keys[i] = key;
+                values[i] = value;
+                count++;
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void clear() {
+        allocate(16);
+        count = 0;
+    }
+
+    //Walking the entries: slots 0 to capacity()-1, the ones with a key of -1 are empty
+    public int capacity() {
+        return keys.length;
+    }
+
+    public int keyAt(int i) {
+        return keys[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T valueAt(int i) {
+        return (T) values[i];
+    }
+}
@@ -0,0 +1,455 @@
+package wumpusworld;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays two agent setups head to head on the same seeded worlds and tells
+ * if the second one (the candidate) is better or worse than the first (the
+ * baseline), or if the difference is only noise.
+ *
+ * Every world is played by both setups on the same thread, one right after
+ * the other in turns, so the scores can be compared game by game. Comparing
+ * pairs takes out most of the luck of the worlds, the confidence interval of
+ * the mean difference is much narrower than the ones of the two means.
+ *
+ * Each turn is timed and the memory the thread allocates while playing is
+ * read from the JVM, so the report also has the latency and the allocation
+ * per turn of both setups.
+ *
+ * A setup is written as parts joined with '+':
+ *   default          inference with pit prior 0.2, the standard agent
+ *   rules            the counting rules instead of the inference
+ *   prior=P          inference with pit prior P
+ *   lookahead=D      plan risky moves D moves ahead, see Lookahead
+ *   costs=a,b,c,d,e,f  a CostModel, in the order of CostModel.NAMES
+ *   nocache          no decision cache
+ *   policy=FILE      the moves of a PolicyTable solved for the prior, on boards of its size
+ * Each setup gets its own decision cache.
+ *
+ * Usage: Compare games baseline candidate [size] [pitChance] [seed] [threads] [scoreDrop] [winDrop] [slowdown]
+ *
+ * The exit code is 1 if the candidate is a regression: its score or win
+ * rate is worse by more than scoreDrop points or winDrop percent points, or
+ * its mean latency or allocation per turn is more than slowdown (a
+ * fraction, 0.1 is 10 %) of the baseline's above it, all with 95 %
+ * confidence. The latency and allocation are compared game by game like
+ * the score, each game is played by both setups one right after the other,
+ * so a slow spell of the machine hits both. 0 otherwise.
+ */
+public class Compare {
+
+    //Games played by one task before it stops splitting
+    private static final int CHUNK = 256;
+
+    //Two sided 95 % confidence
+    public static final double Z = 1.96;
+
+    //Allocation differences below this many bytes per turn are not counted as a regression
+    private static final double ALLOC_SLACK = 16;
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    /**
+     * One of the two setups and how long its turns took.
+     */
+    static class Side {
+        String name;
+        AgentEngine engine;
+        LatencyHistogram latency = new LatencyHistogram();
+
+        Side(String name, AgentEngine engine) {
+            this.name = name;
+            this.engine = engine;
+        }
+    }
+
+    /**
+     * Mean and confidence interval of a difference measured game by game.
+     */
+    static class Paired {
+        long n = 0;
+        double sum = 0;
+        double sqSum = 0;
+
+        void add(double d) {
+            n++;
+            sum += d;
+            sqSum += d*d;
+        }
+
+        void merge(Paired o) {
+            n += o.n;
+            sum += o.sum;
+            sqSum += o.sqSum;
+        }
+
+        double mean() {
+            return n == 0 ? 0 : sum / n;
+        }
+
+        //Half the width of the 95 % confidence interval of the mean
+        double error() {
+            if(n < 2) {
+                return 0;
+            }
+            double mean = mean();
+            double var = Math.max(0, (sqSum - n*mean*mean) / (n - 1));
+            return Z * Math.sqrt(var / n);
+        }
+    }
+
+    /**
+     * What a task played, merged up the task tree like BatchStats.
+     */
+    static class Tally {
+        BatchStats[] stats = { new BatchStats(), new BatchStats() };
+        long[] turns = new long[2];
+        long[] nanos = new long[2];
+        long[] bytes = new long[2];
+        Paired score = new Paired();        //candidate - baseline
+        Paired win = new Paired();
+        Paired latency = new Paired();      //of the mean turn of each game, in ns
+        Paired allocation = new Paired();   //bytes per turn of each game
+        long differ = 0;                    //games with different scores
+
+        void merge(Tally o) {
+            for(int k=0;k<2;k++) {
+                stats[k].merge(o.stats[k]);
+                turns[k] += o.turns[k];
+                nanos[k] += o.nanos[k];
+                bytes[k] += o.bytes[k];
+            }
+            score.merge(o.score);
+            win.merge(o.win);
+            latency.merge(o.latency);
+            allocation.merge(o.allocation);
+            differ += o.differ;
+        }
+
+        double nanosPerTurn(int k) {
+            return turns[k] == 0 ? 0 : (double) nanos[k] / turns[k];
+        }
+
+        double bytesPerTurn(int k) {
+            return turns[k] == 0 ? 0 : (double) bytes[k] / turns[k];
+        }
+    }
+
+    private BatchRunner worlds;
+    private Side[] sides;
+    private int width;
+    private int height;
+    private int maxTurns;
+
+    public Compare(int size, double pitChance, long seed, Side baseline, Side candidate) {
+        this.width = size;
+        this.height = size;
+        this.maxTurns = 10*size*size;
+        this.worlds = new BatchRunner(size, size, pitChance, seed, maxTurns);
+        this.sides = new Side[] { baseline, candidate };
+    }
+
+    /**
+     * Plays worlds 0 to games-1 with both setups on a pool with the given number of threads.
+     */
+    public Tally run(long games, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new Games(0, games));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    //Plays world i with both setups, the one to go first changes every world
+    private void play(long i, Tally t, MyAgent[] agents) {
+        int[] score = new int[2];
+        boolean[] won = new boolean[2];
+        int[] gameTurns = new int[2];
+        double[] gameNanos = new double[2];
+        double[] gameBytes = new double[2];
+        for(int j=0;j<2;j++) {
+            int k = (int) ((i + j) & 1);
+            SimWorld sw = worlds.world(i);
+            if(agents[k] == null) {
+                agents[k] = new MyAgent(sw, width, height, sides[k].engine);
+            }
+            else {
+                agents[k].reset(sw);
+            }
+            MyAgent agent = agents[k];
+            LatencyHistogram latency = sides[k].latency;
+
+            RuntimeException error = null;
+            int turns = 0;
+            long nanos = 0;
+            long bytes = allocatedBytes();
+            try {
+                while(!sw.gameOver() && turns < maxTurns) {
+                    long start = System.nanoTime();
+                    agent.doAction();
+                    long took = System.nanoTime() - start;
+                    latency.record(took);
+                    nanos += took;
+                    turns++;
+                }
+            }
+            catch(RuntimeException e) {
+                error = e;
+            }
+            bytes = allocatedBytes() - bytes;
+
+            boolean timedOut = error == null && !sw.gameOver();
+            t.stats[k].add(sw.getScore(), sw.getActionCount(), sw.hasGold(), timedOut, error != null);
+            t.stats[k].keepError(i, error);
+            t.turns[k] += turns;
+            t.nanos[k] += nanos;
+            t.bytes[k] += bytes;
+            score[k] = sw.getScore();
+            won[k] = sw.hasGold();
+            gameTurns[k] = turns;
+            gameNanos[k] = nanos;
+            gameBytes[k] = bytes;
+        }
+        t.score.add(score[1] - score[0]);
+        t.win.add((won[1] ? 1 : 0) - (won[0] ? 1 : 0));
+        if(gameTurns[0] > 0 && gameTurns[1] > 0) {
+            t.latency.add(gameNanos[1] / gameTurns[1] - gameNanos[0] / gameTurns[0]);
+            t.allocation.add(gameBytes[1] / gameTurns[1] - gameBytes[0] / gameTurns[0]);
+        }
+        if(score[0] != score[1]) {
+            t.differ++;
+        }
+    }
+
+    //Splits the world range in halves until it is small enough to play
+    private class Games extends RecursiveTask<Tally> {
+        private static final long serialVersionUID = 1L;
+
+        private long from;
+        private long to;
+
+        Games(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        protected Tally compute() {
+            if(to - from <= CHUNK) {
+                Tally t = new Tally();
+                MyAgent[] agents = new MyAgent[2];
+                for(long i=from;i<to;i++) {
+                    play(i, t, agents);
+                }
+                return t;
+            }
+
+            long mid = (from + to) >>> 1;
+            Games left = new Games(from, mid);
+            left.fork();
+            Tally t = new Games(mid, to).compute();
+            t.merge(left.join());
+            return t;
+        }
+    }
+
+    //Allocation------------------------------------------------------------------
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if(!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if(!bean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+
+    //Bytes the current thread allocated so far, 0 if the JVM can not tell
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    public static boolean measuresAllocation() {
+        return THREADS != null;
+    }
+
+    //Setups----------------------------------------------------------------------
+    /**
+     * The setup written as spec, see the class comment.
+     */
+    public static Side parse(String spec) {
+        double prior = 0.2;
+        Lookahead lookahead = null;
+        CostModel costs = CostModel.DEFAULT;
+        DecisionCache cache = new DecisionCache(1 << 16);
+        PolicyTable policy = null;
+
+        String[] parts = spec.split("\\+");
+        for(int i=0;i<parts.length;i++) {
+            String part = parts[i].trim();
+            int eq = part.indexOf('=');
+            String key = eq == -1 ? part : part.substring(0, eq);
+            String value = eq == -1 ? null : part.substring(eq + 1);
+            switch(key) {
+                case "default":     break;
+                case "rules":       prior = AgentEngine.NO_INFERENCE;                       break;
+                case "prior":       prior = Double.parseDouble(value);                      break;
+                case "lookahead":   lookahead = new Lookahead(Integer.parseInt(value));     break;
+                case "costs":       costs = parseCosts(value);                              break;
+                case "nocache":     cache = null;                                           break;
+                case "policy":      policy = openPolicy(value);                             break;
+                default:
+                    throw new IllegalArgumentException("Unknown part " + part + " of setup " + spec);
+            }
+        }
+        if(policy != null && policy.getPitChance() != prior) {
+            throw new IllegalArgumentException("The policy table of setup " + spec + " was solved for pit chance "
+                    + policy.getPitChance() + ", not the prior " + prior);
+        }
+        return new Side(spec, new AgentEngine(Trace.NONE, prior, cache, null, lookahead, costs, policy));
+    }
+
+    private static PolicyTable openPolicy(String file) {
+        try {
+            return new PolicyTable(new File(file));
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static CostModel parseCosts(String value) {
+        String[] s = value.split(",");
+        if(s.length != CostModel.SIZE) {
+            throw new IllegalArgumentException("A cost model has " + CostModel.SIZE + " numbers, not " + s.length);
+        }
+        int[] v = new int[CostModel.SIZE];
+        for(int i=0;i<CostModel.SIZE;i++) {
+            v[i] = Integer.parseInt(s[i].trim());
+        }
+        return new CostModel(v);
+    }
+
+    //Report----------------------------------------------------------------------
+    /**
+     * The results side by side and the differences, candidate minus baseline.
+     */
+    public String report(Tally t, double seconds) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d paired games in %.2f s%n", t.score.n, seconds));
+        sb.append(String.format("%-22s %14s %14s%n", "", "baseline", "candidate"));
+        sb.append(String.format("%-22s %14s %14s%n", "Setup", sides[0].name, sides[1].name));
+        sb.append(String.format("%-22s %12.2f %% %12.2f %%%n", "Win rate", 100*t.stats[0].winRate(), 100*t.stats[1].winRate()));
+        sb.append(String.format("%-22s %14.1f %14.1f%n", "Mean score", t.stats[0].meanScore(), t.stats[1].meanScore()));
+        sb.append(String.format("%-22s %14.1f %14.1f%n", "Actions/game", t.stats[0].meanActions(), t.stats[1].meanActions()));
+        sb.append(String.format("%-22s %14d %14d%n", "Timeouts + errors",
+                t.stats[0].timeouts + t.stats[0].errors, t.stats[1].timeouts + t.stats[1].errors));
+        sb.append(String.format("%-22s %14.0f %14.0f%n", "Turn mean (ns)", t.nanosPerTurn(0), t.nanosPerTurn(1)));
+        long[][] counts = new long[2][LatencyHistogram.BUCKETS];
+        sides[0].latency.copyBuckets(counts[0]);
+        sides[1].latency.copyBuckets(counts[1]);
+        double[] qs = { 0.5, 0.9, 0.99 };
+        for(int q=0;q<qs.length;q++) {
+            sb.append(String.format("%-22s %14d %14d%n", "Turn p" + Math.round(100*qs[q]) + " (ns)",
+                    LatencyHistogram.percentile(counts[0], qs[q]), LatencyHistogram.percentile(counts[1], qs[q])));
+        }
+        if(measuresAllocation()) {
+            sb.append(String.format("%-22s %14.1f %14.1f%n", "Allocated/turn (B)", t.bytesPerTurn(0), t.bytesPerTurn(1)));
+        }
+        else {
+            sb.append(String.format("%-22s %14s %14s%n", "Allocated/turn (B)", "n/a", "n/a"));
+        }
+
+        sb.append("Candidate - baseline, 95 % confidence:\n");
+        sb.append(String.format("%-22s %+10.1f +- %.1f%n", "Score", t.score.mean(), t.score.error()));
+        sb.append(String.format("%-22s %+10.2f +- %.2f points%n", "Win rate", 100*t.win.mean(), 100*t.win.error()));
+        sb.append(String.format("%-22s %10d of %d%n", "Games scored apart", t.differ, t.score.n));
+        sb.append(String.format("%-22s %+10.0f +- %.0f ns (%+.1f %%)%n", "Turn mean", t.latency.mean(), t.latency.error(),
+                100*ratio(t.nanosPerTurn(1), t.nanosPerTurn(0))));
+        if(measuresAllocation()) {
+            sb.append(String.format("%-22s %+10.1f +- %.1f B (%+.1f %%)%n", "Allocated/turn", t.allocation.mean(), t.allocation.error(),
+                    100*ratio(t.bytesPerTurn(1), t.bytesPerTurn(0))));
+        }
+        for(int k=0;k<2;k++) {
+            if(t.stats[k].firstError != null) {
+                StringWriter trace = new StringWriter();
+                t.stats[k].firstError.printStackTrace(new PrintWriter(trace));
+                sb.append(String.format("First error of %s: game %d, %s", sides[k].name, t.stats[k].errorGame, trace));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Why the candidate is a regression, null if it is not.
+     *
+     * @param scoreDrop Points of mean score the candidate may lose
+     * @param winDrop Percent points of win rate the candidate may lose
+     * @param slowdown Fraction of the baseline's latency and allocation per
+     *        turn the candidate's may be above them, by the lower end of the
+     *        confidence interval of the difference game by game
+     */
+    public static String regression(Tally t, double scoreDrop, double winDrop, double slowdown) {
+        StringBuilder sb = new StringBuilder();
+        if(t.score.mean() + t.score.error() < -scoreDrop) {
+            sb.append(String.format("score is %.1f +- %.1f lower; ", -t.score.mean(), t.score.error()));
+        }
+        if(100*(t.win.mean() + t.win.error()) < -winDrop) {
+            sb.append(String.format("win rate is %.2f +- %.2f points lower; ", -100*t.win.mean(), 100*t.win.error()));
+        }
+        if(t.latency.mean() - t.latency.error() > slowdown * t.nanosPerTurn(0)) {
+            sb.append(String.format("turns are %.0f +- %.0f ns slower; ", t.latency.mean(), t.latency.error()));
+        }
+        if(measuresAllocation() && t.allocation.mean() - t.allocation.error() > slowdown * t.bytesPerTurn(0) + ALLOC_SLACK) {
+            sb.append(String.format("turns allocate %.1f +- %.1f B more; ", t.allocation.mean(), t.allocation.error()));
+        }
+        return sb.length() == 0 ? null : sb.substring(0, sb.length() - 2);
+    }
+
+    //How much bigger a is than b, as a fraction
+    private static double ratio(double a, double b) {
+        return b == 0 ? 0 : a / b - 1;
+    }
+
+    public static void main(String[] args) {
+        if(args.length < 3) {
+            System.out.println("Usage: Compare games baseline candidate [size] [pitChance] [seed] [threads] [scoreDrop] [winDrop] [slowdown]");
+            System.exit(2);
+        }
+
+        long games = Long.parseLong(args[0]);
+        Side baseline = parse(args[1]);
+        Side candidate = parse(args[2]);
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        double pitChance = args.length > 4 ? Double.parseDouble(args[4]) : 0.2;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+        int threads = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+        double scoreDrop = args.length > 7 ? Double.parseDouble(args[7]) : 0;
+        double winDrop = args.length > 8 ? Double.parseDouble(args[8]) : 0;
+        double slowdown = args.length > 9 ? Double.parseDouble(args[9]) : 0.1;
+
+        Compare compare = new Compare(size, pitChance, seed, baseline, candidate);
+        System.out.println(String.format("%dx%d, pit chance %.2f, seed %d, %d threads", size, size, pitChance, seed, threads));
+        long start = System.nanoTime();
+        Tally t = compare.run(games, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.print(compare.report(t, seconds));
+
+        String why = regression(t, scoreDrop, winDrop, slowdown);
+        if(why != null) {
+            System.out.println("REGRESSION: " + why);
+            System.exit(1);
+        }
+        System.out.println("No regression");
+    }
+}
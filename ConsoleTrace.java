@@ -0,0 +1,23 @@
+package wumpusworld;
+
+/**
+ * Writes the trace to System.out, the way the agent always has.
+ */
+class ConsoleTrace implements Trace {
+
+    private int level;
+
+    public ConsoleTrace(int level) {
+        this.level = level;
+    }
+
+    public boolean isEnabled(int l) {
+        return l <= level;
+    }
+
+    public void println(int l, String msg) {
+        if(l <= level) {
+            System.out.println(msg);
+        }
+    }
+}
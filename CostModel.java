@@ -0,0 +1,117 @@
+package wumpusworld;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The constants the agent decides by, as one vector of ints so they can be
+ * tuned (see Tuner). DEFAULT holds the values the agent was written with.
+ *
+ * A CostModel does not change after it is made.
+ */
+class CostModel {
+
+    //Places of the parameters in the vector
+    public static final int PIT_COST = 0;           //extra cost of walking through a known pit, falling in and climbing up
+    public static final int SHOOT_COST = 1;         //extra cost of entering the wumpus cell, shooting first
+    public static final int SAFE_COST_LIMIT = 2;    //a path is only safe if it costs less than this
+    public static final int BREEZE_SLACK = 3;       //isRiskless: breezes + slack must be fewer than the visited neighbours
+    public static final int STENCH_SLACK = 4;       //isRiskless: the same for stenches
+    public static final int RISK_VISITED_WEIGHT = 5;//RiskLevel: neighbours - weight * visited neighbours
+    public static final int SIZE = 6;
+
+    public static final String[] NAMES = {
+        "pitCost", "shootCost", "safeCostLimit", "breezeSlack", "stenchSlack", "riskVisitedWeight"
+    };
+
+    //Range the Tuner draws each parameter from
+    public static final int[] LOW =  { 10,     0,    10, -1, -1, 0 };
+    public static final int[] HIGH = { 3000, 200, 3000,  1,  1, 3 };
+
+    public static final CostModel DEFAULT = new CostModel(new int[] { 1001, 11, 1000, 0, 0, 1 });
+
+    private final int[] v;
+
+    public CostModel(int[] vector) {
+        if(vector.length != SIZE) {
+            throw new IllegalArgumentException("A cost model has " + SIZE + " parameters, not " + vector.length);
+        }
+        v = vector.clone();
+    }
+
+    /**
+     * A model with every parameter drawn evenly from its range.
+     */
+    public static CostModel random(Random rnd) {
+        int[] vector = new int[SIZE];
+        for(int i=0;i<SIZE;i++) {
+            vector[i] = LOW[i] + rnd.nextInt(HIGH[i] - LOW[i] + 1);
+        }
+        return new CostModel(vector);
+    }
+
+    public int get(int i) {
+        return v[i];
+    }
+
+    public int[] vector() {
+        return v.clone();
+    }
+
+    public int pitCost() {
+        return v[PIT_COST];
+    }
+
+    public int shootCost() {
+        return v[SHOOT_COST];
+    }
+
+    public int safeCostLimit() {
+        return v[SAFE_COST_LIMIT];
+    }
+
+    public int breezeSlack() {
+        return v[BREEZE_SLACK];
+    }
+
+    public int stenchSlack() {
+        return v[STENCH_SLACK];
+    }
+
+    public int riskVisitedWeight() {
+        return v[RISK_VISITED_WEIGHT];
+    }
+
+    /**
+     * Mixes the parameters into a key, for engines that must not share decisions.
+     */
+    public long salt() {
+        long h = 0;
+        for(int i=0;i<SIZE;i++) {
+            h ^= Board.zobrist(v[i], Integer.MIN_VALUE + i);
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CostModel && Arrays.equals(v, ((CostModel) o).v);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(v);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for(int i=0;i<SIZE;i++) {
+            if(i > 0) {
+                sb.append(", ");
+            }
+            sb.append(NAMES[i]).append('=').append(v[i]);
+        }
+        return sb.toString();
+    }
+}
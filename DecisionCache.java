@@ -0,0 +1,91 @@
+package wumpusworld;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decisions of earlier turns, found by the hash of the knowledge state they
+ * were made in (see Board.hash). One cache is shared by every agent in the
+ * process, so a state any game has seen before (the openings above all) skips
+ * the inference and the path search.
+ *
+ * The cache is a fixed table of slots, a state always goes to the same slot
+ * and a new state takes the slot over from the old one. Entries are never
+ * changed once made, so games on other threads read and replace them without
+ * locks.
+ */
+class DecisionCache {
+
+    //Cache used by all agents unless they are given another one
+    public static final DecisionCache SHARED = new DecisionCache(1 << 16);
+
+    private AtomicReferenceArray<Entry> slots;
+    private int mask;
+
+    public LongAdder hits = new LongAdder();
+    public LongAdder misses = new LongAdder();
+
+    /**
+     * @param size Number of slots, rounded up to a power of two
+     */
+    public DecisionCache(int size) {
+        int n = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+        slots = new AtomicReferenceArray<>(n);
+        mask = n - 1;
+    }
+
+    /**
+     * The path chosen in the state, cell indices from the target back to the
+     * start. null if it is not in the cache. The array must not be changed.
+     */
+    public int[] get(long key) {
+        Entry e = slots.get(slot(key));
+        if(e != null && e.key == key) {
+            hits.increment();
+            return e.path;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores the first length cells of path as the decision of the state.
+     */
+    public void put(long key, int[] path, int length) {
+        int[] copy = new int[length];
+        System.arraycopy(path, 0, copy, 0, length);
+        slots.set(slot(key), new Entry(key, copy));
+    }
+
+    /**
+     * Share of the lookups that found a decision, 0 if there were none.
+     */
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public void clear() {
+        for(int i=0;i<slots.length();i++) {
+            slots.set(i, null);
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    //The low bits of the Zobrist hash are already random
+    private int slot(long key) {
+        return (int) key & mask;
+    }
+
+    private static class Entry {
+        final long key;
+        final int[] path;
+
+        Entry(long key, int[] path) {
+            this.key = key;
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package wumpusworld;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the trace to a file from a background thread.
+ *
+ * The agent only puts the message on a queue, a writer thread drains the
+ * queue into a buffered file. If the writer falls behind the agent waits for
+ * room on the queue instead of dropping lines. If a write fails the trace
+ * turns itself off and close() reports the error. Call close() when the run
+ * is done to write out what is left. Lines traced after close() are dropped,
+ * and closing again does nothing.
+ */
+class FileTrace implements Trace, AutoCloseable {
+
+    //Marks the end of the queue for the writer thread
+    private static final String END = new String("END");
+
+    //How long a line waits for room on the queue before it looks again if the trace was closed
+    private static final long WAIT_MILLIS = 10;
+
+    private volatile int level;
+    private BlockingQueue<String> queue;
+    private Thread writer;
+    private volatile IOException error;
+    private volatile boolean closed = false;
+
+    public FileTrace(File file, int level) throws IOException {
+        this(file, level, 8192);
+    }
+
+    public FileTrace(File file, int level, int queueSize) throws IOException {
+        this.level = level;
+        queue = new ArrayBlockingQueue<>(queueSize);
+
+        BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16);
+        writer = new Thread(() -> drain(out), "FileTrace " + file.getName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public boolean isEnabled(int l) {
+        return l <= level;
+    }
+
+    public void println(int l, String msg) {
+        if(l > level) {
+            return;
+        }
+        try {
+            //The writer thread is gone once the trace is closed, so a full queue would never have room again
+            while(!closed) {
+                if(queue.offer(msg, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes out the queued lines and closes the file.
+     *
+     * @throws IOException if the writer thread failed to write the file
+     */
+    public synchronized void close() throws IOException {
+        if(!closed) {
+            closed = true;
+            level = OFF;
+            end();
+        }
+        if(error != null) {
+            throw error;
+        }
+    }
+
+    //Tells the writer thread to finish and waits for it
+    private void end() {
+        try {
+            queue.put(END);
+            writer.join();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain(BufferedWriter out) {
+        ArrayList<String> batch = new ArrayList<>();
+        boolean done = false;
+
+        try {
+            while(!done) {
+                //Wait for one line, then take everything else that is queued
+                batch.add(queue.take());
+                queue.drainTo(batch);
+
+                for(int i=0;i<batch.size();i++) {
+                    if(batch.get(i) == END) {
+                        done = true;
+                        break;
+                    }
+                    write(out, batch.get(i));
+                }
+                batch.clear();
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            try {
+                out.close();
+            }
+            catch(IOException e) {
+                if(error == null) {
+                    error = e;
+                }
+            }
+        }
+    }
+
+    private void write(BufferedWriter out, String msg) {
+        //After a failed write we stop writing but keep taking lines so the agent never blocks
+        if(error != null) {
+            return;
+        }
+        try {
+            out.write(msg);
+            out.newLine();
+        }
+        catch(IOException e) {
+            error = e;
+            level = OFF;
+        }
+    }
+}
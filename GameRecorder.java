@@ -0,0 +1,176 @@
+package wumpusworld;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes games to a compact binary trace file, to be played back later by
+ * TraceReader without a World.
+ *
+ * A game is recorded by letting the agent play in the RecordingWorld that
+ * start() returns and calling finish() when it is over. Games are appended
+ * to the file one whole game at a time, so several threads can record into
+ * the same file and a file that is written to again just grows. The file
+ * keeps the settings of the engine that played, so TraceReader can replay
+ * the games with the same engine.
+ *
+ * FILE:   the 4 bytes "WWT2", the settings, then the games one after the other.
+ * SETTINGS: varint length of the rest of the settings, then the pit prior
+ *         (8 bytes, the bits of the double, low byte first) and the varints
+ *         lookahead depth (0 for none), policy table used (0 or 1), number
+ *         of cost model parameters, then the parameters (zigzag).
+ * GAME:   varint length of the rest of the game, then the varints
+ *         width, height, start x, start y, start direction, percepts of the
+ *         start cell, game over (0 or 1), score (zigzag), number of events,
+ *         then the events.
+ * EVENT:  one byte, the action (bits 0-2, GameWorld codes) and the percepts
+ *         of the cell the player is in after it (bits 3-6).
+ * PERCEPTS: BREEZE, STENCH, GLITTER and PIT (we are in a pit) bits.
+ *
+ * A varint holds 7 bits per byte, low bits first, the top bit tells that
+ * more bytes follow. An event is below 128, so it is a one byte varint.
+ */
+class GameRecorder implements Closeable {
+
+    public static final byte[] MAGIC = { 'W', 'W', 'T', '2' };
+
+    public static final int BREEZE = 1;
+    public static final int STENCH = 2;
+    public static final int GLITTER = 4;
+    public static final int PIT = 8;
+
+    private OutputStream out;
+    private byte[] header = new byte[9*5];
+    private long games = 0;
+
+    /**
+     * Opens the file for appending the games engine plays, writing the file
+     * header if it is new. A file that has games already must have been
+     * recorded with the same settings.
+     */
+    public GameRecorder(File file, AgentEngine engine) throws IOException {
+        byte[] settings = settings(engine);
+        boolean empty = !file.exists() || file.length() == 0;
+        if(!empty) {
+            try(TraceReader reader = new TraceReader(file)) {
+                if(!Arrays.equals(reader.getSettings(), settings)) {
+                    throw new IOException(file + " was recorded with other engine settings");
+                }
+            }
+        }
+        out = new BufferedOutputStream(new FileOutputStream(file, true), 1 << 16);
+        if(empty) {
+            out.write(MAGIC);
+            out.write(settings);
+        }
+    }
+
+    /**
+     * The settings of engine as they are written to the file, with their length.
+     */
+    static byte[] settings(AgentEngine engine) {
+        CostModel costs = engine.getCostModel();
+        byte[] buf = new byte[8 + 5*(3 + CostModel.SIZE)];
+        int n = 0;
+        long prior = Double.doubleToLongBits(engine.getPitPrior());
+        for(int i=0;i<8;i++) {
+            buf[n++] = (byte) (prior >>> (8*i));
+        }
+        n = putVarint(buf, n, engine.useLookahead() ? engine.getLookahead().getDepth() : 0);
+        n = putVarint(buf, n, engine.usesPolicy() ? 1 : 0);
+        n = putVarint(buf, n, CostModel.SIZE);
+        for(int i=0;i<CostModel.SIZE;i++) {
+            n = putVarint(buf, n, zigzag(costs.get(i)));
+        }
+
+        byte[] settings = new byte[5 + n];
+        int at = putVarint(settings, 0, n);
+        System.arraycopy(buf, 0, settings, at, n);
+        return Arrays.copyOf(settings, at + n);
+    }
+
+    /**
+     * A world that records everything the agent does in w and what it
+     * perceives after each action.
+     */
+    public RecordingWorld start(GameWorld w, int width, int height) {
+        return new RecordingWorld(w, width, height);
+    }
+
+    /**
+     * Writes the game played in rw to the file.
+     */
+    public synchronized void finish(RecordingWorld rw) throws IOException {
+        int n = 0;
+        n = putVarint(header, n, rw.width);
+        n = putVarint(header, n, rw.height);
+        n = putVarint(header, n, rw.startX);
+        n = putVarint(header, n, rw.startY);
+        n = putVarint(header, n, rw.startDir);
+        n = putVarint(header, n, rw.startPercepts);
+        n = putVarint(header, n, rw.gameOver() ? 1 : 0);
+        n = putVarint(header, n, zigzag(rw.getScore()));
+        n = putVarint(header, n, rw.length);
+
+        int len = n + rw.length;
+        for(;(len & ~0x7F) != 0;len>>>=7) {
+            out.write((len & 0x7F) | 0x80);
+        }
+        out.write(len);
+        out.write(header, 0, n);
+        out.write(rw.events, 0, rw.length);
+        games++;
+    }
+
+    /**
+     * Number of games written by this recorder.
+     */
+    public synchronized long games() {
+        return games;
+    }
+
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    //Varints-----------------------------------------------------------------
+    /**
+     * Writes v (taken as unsigned) to buf at pos, returns the position after it.
+     */
+    public static int putVarint(byte[] buf, int pos, int v) {
+        while((v & ~0x7F) != 0) {
+            buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+        return pos;
+    }
+
+    //Small negative numbers get small codes too: 0, -1, 1, -2, 2...
+    public static int zigzag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    public static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * The percepts of the cell the player stands in.
+     */
+    static int percepts(GameWorld w) {
+        int x = w.getPlayerX();
+        int y = w.getPlayerY();
+        int p = 0;
+        if(w.hasBreeze(x, y)) {     p |= BREEZE;    }
+        if(w.hasStench(x, y)) {     p |= STENCH;    }
+        if(w.hasGlitter(x, y)) {    p |= GLITTER;   }
+        if(w.isInPit()) {           p |= PIT;       }
+        return p;
+    }
+}
@@ -0,0 +1,80 @@
+package wumpusworld;
+
+/**
+ * Everything one game has learned, kept between its turns: the board and
+ * the few facts AgentEngine remembers on top of it. The engine holds no
+ * state of its own, so one engine can play any number of games, each with
+ * its GameState. A GameState belongs to one game and must only be used by
+ * one thread at a time.
+ */
+class GameState {
+
+    public Board board;
+    public boolean wumpusFound = false;
+
+    //Path chosen last turn, good as long as the board version and our cell are the same
+    int[] decisionPath;
+    int decisionLength = 0;
+    int decisionVersion = -1;
+    int decisionCell = -1;
+
+    //Board size part of the decision cache key
+    long sizeSalt;
+
+    //Picks the turns the metrics time
+    int sampleState;
+
+    public GameState(int width, int height) {
+        //Create the board, it sets the number of neighbours of each cell
+        board = new Board(width, height);
+        decisionPath = new int[Math.min(board.size(), 64)];
+        sizeSalt = Board.zobrist(Board.Z_WIDTH, width) ^ Board.zobrist(Board.Z_HEIGHT, height);
+        sampleState = System.identityHashCode(this) | 1;
+    }
+
+    /**
+     * A copy of what the game s knows, with no decision remembered.
+     */
+    public GameState(GameState s) {
+        board = s.board.copy();
+        wumpusFound = s.wumpusFound;
+        decisionPath = new int[Math.min(board.size(), 64)];
+        sizeSalt = s.sizeSalt;
+        sampleState = s.sampleState;
+    }
+
+    /**
+     * Forgets the game, for a new one on a board of the same size.
+     */
+    public void reset() {
+        board.reset();
+        wumpusFound = false;
+        decisionLength = 0;
+        decisionVersion = -1;
+        decisionCell = -1;
+    }
+
+    /**
+     * Opens a mark on what the game knows, see Board.mark. Costs nothing
+     * but an entry in the undo log.
+     *
+     * @return The mark, to give to undo
+     */
+    public int mark() {
+        return board.mark() << 1 | (wumpusFound ? 1 : 0);
+    }
+
+    /**
+     * Takes the game back to what it knew at the mark. The remembered
+     * decision is dropped.
+     */
+    public void undo(int mark) {
+        board.undo(mark >>> 1);
+        wumpusFound = (mark & 1) != 0;
+        decisionLength = 0;
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+}
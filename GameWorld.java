@@ -0,0 +1,51 @@
+package wumpusworld;
+
+/**
+ * The parts of a Wumpus World the agent uses: where the player is, what it
+ * perceives and the actions it can take.
+ *
+ * WorldAdapter puts the course World behind it, SimWorld is a plain in
+ * process version for benchmarks and batch runs. Actions and directions are
+ * our own int codes, the adapter translates them to the World constants.
+ * Coordinates start at 1, like in World. The percepts the rules read are in
+ * Percepts.
+ */
+interface GameWorld extends Percepts {
+
+    //Actions
+    public static final int A_MOVE = 0;
+    public static final int A_TURN_LEFT = 1;
+    public static final int A_TURN_RIGHT = 2;
+    public static final int A_GRAB = 3;
+    public static final int A_SHOOT = 4;
+    public static final int A_CLIMB = 5;
+
+    //Directions, turning right adds one
+    public static final int DIR_UP = 0;
+    public static final int DIR_RIGHT = 1;
+    public static final int DIR_DOWN = 2;
+    public static final int DIR_LEFT = 3;
+
+    public int getPlayerX();
+
+    public int getPlayerY();
+
+    public int getDirection();
+
+    public boolean hasGlitter(int x, int y);
+
+    public boolean gameOver();
+
+    public int getScore();
+
+    public void doAction(int action);
+
+    /**
+     * Does the first count actions of the array, in order.
+     */
+    public default void doActions(int[] actions, int count) {
+        for(int i=0;i<count;i++) {
+            doAction(actions[i]);
+        }
+    }
+}
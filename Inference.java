@@ -0,0 +1,415 @@
+package wumpusworld;
+
+import java.util.Arrays;
+
+/**
+ * Exact pit and wumpus probabilities for the accessible cells, from the
+ * percepts newSpace has stored in the Board.
+ *
+ * PITS: every unvisited cell holds a pit with the prior chance, independent
+ * of the others. A visited cell without breeze makes all its neighbours safe,
+ * a visited cell with breeze needs at least one pit among its neighbours.
+ * The frontier cells are split into components that share breeze
+ * constraints. Each component is solved by trying every pit assignment as a
+ * bit mask, and the result is cached under the shape of its constraints, so
+ * a component that did not change since the last turn (or that has the same
+ * shape as one seen before) costs one lookup. The cache is a fixed table of
+ * slots with its own arrays, so a lookup does not allocate anything.
+ *
+ * WUMPUS: there is one wumpus in an unvisited cell. Every stench keeps only
+ * the candidates next to it, every visited cell without stench rules out its
+ * neighbours. Each candidate left is equally likely. The board keeps the
+ * candidates (see Board.isWumpusCandidate), so this is only a division.
+ *
+ * The work space is indexed by the slot of a cell (see Board), which is
+ * its index on a dense board.
+ */
+class Inference {
+
+    //Components bigger than this are not enumerated, see approximate()
+    public static final int MAX_ENUM_CELLS = 20;
+
+    //Assignments tried between two looks at the budget
+    private static final int BUDGET_CHUNK = 1024;
+
+    //Number of slots in the component cache, a power of two
+    public static final int CACHE_SIZE = 4096;
+
+    private double pitPrior;
+
+    //Results of the last update, indexed by cell slot
+    private double[] pitProb;
+    private double[] wumpusProb;
+    private int wumpusCandidates;
+
+    //Work space
+    private Board board;
+    private int lastVersion = -1;
+    private int[] parent;           //union-find over cell slots
+    private boolean[] safe;         //frontier cell next to a visited cell without breeze
+    private int[] constraintCells;  //cells of every breeze constraint, one after the other
+    private int[] constraintStart;  //where each constraint starts in constraintCells
+    private int[] constraintOf;     //component root of each constraint
+    private int numConstraints;
+    private int[] local;            //position of a cell in its component
+    private int[] members;
+    private int[] seen;             //cells already in members have the current stamp
+    private int stamp = 0;
+    private Budget budget;          //null for no limit
+    private boolean complete = true;
+    private long[] masks;           //constraint masks of the component being solved
+    private double[] weight = new double[MAX_ENUM_CELLS+1];
+    private double[] sum = new double[MAX_ENUM_CELLS];
+
+    //Component cache, a slot holds the shape (cells and masks) and the result of one component.
+    //A new shape that lands on a used slot takes it over
+    private int[] slotCells;
+    private int[] slotMaskCount;
+    private long[][] slotMasks;
+    private double[][] slotProb;
+    public long cacheHits = 0;
+    public long cacheMisses = 0;
+
+    public Inference(double pitPrior) {
+        this.pitPrior = pitPrior;
+
+        slotCells = new int[CACHE_SIZE];
+        slotMaskCount = new int[CACHE_SIZE];
+        slotMasks = new long[CACHE_SIZE][];
+        slotProb = new double[CACHE_SIZE][];
+    }
+
+    public double getPitPrior() {
+        return pitPrior;
+    }
+
+    public double pitProbability(Cell c) {
+        return pitProb[c.slot];
+    }
+
+    public double wumpusProbability(Cell c) {
+        return wumpusProb[c.slot];
+    }
+
+    /**
+     * Number of cells that can still hold the wumpus, 0 if the percepts
+     * do not fit any (for example after it was shot).
+     */
+    public int wumpusCandidates() {
+        return wumpusCandidates;
+    }
+
+    /**
+     * Recomputes the probabilities of all accessible cells, if the board
+     * changed since the last update.
+     */
+    public void update(Board b) {
+        update(b, null);
+    }
+
+    /**
+     * Like update(b), but stops enumerating when the budget runs out. The
+     * components left are approximated (see approximate()) instead.
+     *
+     * @return true if every component was solved exactly
+     */
+    public boolean update(Board b, Budget budget) {
+        if(board == b && b.version == lastVersion) {
+            return complete;
+        }
+        int n = b.slotCount();
+        if(pitProb == null || pitProb.length < n) {
+            allocate(b.isSparse() ? 2*n : n);
+        }
+        board = b;
+        this.budget = budget;
+        complete = true;
+        updatePits();
+        updateWumpus();
+        this.budget = null;
+
+        //A result cut short is worked out again next time
+        lastVersion = complete ? b.version : -1;
+        return complete;
+    }
+
+    //Work space for boards of n slots, an Inference can be used on any board
+    private void allocate(int n) {
+        pitProb = new double[n];
+        wumpusProb = new double[n];
+        parent = new int[n];
+        safe = new boolean[n];
+        local = new int[n];
+        members = new int[n];
+        seen = new int[n];
+        constraintCells = new int[4*n];
+        constraintStart = new int[n+1];
+        constraintOf = new int[n];
+        masks = new long[n];
+    }
+
+    //PITS----------------------------------------------------------------------
+    private void updatePits() {
+        CellSet visited = board.visited;
+        CellSet accessible = board.accessible;
+
+        //Start with every frontier cell on its own at the prior
+        for(int i=accessible.nextSetBit(0);i!=-1;i=accessible.nextSetBit(i+1)) {
+            int s = board.slot(i);
+            parent[s] = s;
+            safe[s] = false;
+            pitProb[s] = pitPrior;
+        }
+
+        //Visited cells without breeze: their neighbours have no pit
+        for(int v=visited.nextSetBit(0);v!=-1;v=visited.nextSetBit(v+1)) {
+            if(board.breeze.get(v)) {
+                continue;
+            }
+            Cell c = board.get(v);
+            for(int d=0;d<4;d++) {
+                Cell nb = board.neighbour(c, d);
+                if(nb != null && accessible.get(nb.index)) {
+                    safe[nb.slot] = true;
+                    pitProb[nb.slot] = 0;
+                }
+            }
+        }
+
+        //Visited cells with breeze: at least one pit among the neighbours that can have one
+        numConstraints = 0;
+        int used = 0;
+        for(int v=board.breeze.nextSetBit(0);v!=-1;v=board.breeze.nextSetBit(v+1)) {
+            Cell c = board.get(v);
+            int start = used;
+            boolean explained = false;      //a known pit next to it already causes the breeze
+            for(int d=0;d<4;d++) {
+                Cell nb = board.neighbour(c, d);
+                if(nb == null) {
+                    continue;
+                }
+                if(visited.get(nb.index)) {
+                    if(board.pit.get(nb.index)) {
+                        explained = true;
+                    }
+                }
+                else if(!safe[nb.slot]) {
+                    constraintCells[used++] = nb.slot;
+                }
+            }
+            if(explained || used == start) {
+                used = start;               //no constraint (or one the percepts contradict)
+                continue;
+            }
+            constraintStart[numConstraints++] = start;
+            for(int j=start+1;j<used;j++) {
+                union(constraintCells[start], constraintCells[j]);
+            }
+        }
+        constraintStart[numConstraints] = used;
+
+        //Solve each component once, the first cell found is its root
+        for(int k=0;k<numConstraints;k++) {
+            constraintOf[k] = find(constraintCells[constraintStart[k]]);
+        }
+        for(int k=0;k<numConstraints;k++) {
+            int root = constraintOf[k];
+            if(parent[root] == root) {
+                solve(root);
+                parent[root] = -1 - root;   //mark as solved, find() is not used after this
+            }
+        }
+    }
+
+    private void solve(int root) {
+        //Members of the component in slot order, so the same shape gives the same key
+        int m = 0;
+        stamp++;
+        for(int k=0;k<numConstraints;k++) {
+            if(constraintOf[k] != root) {
+                continue;
+            }
+            for(int j=constraintStart[k];j<constraintStart[k+1];j++) {
+                int i = constraintCells[j];
+                if(seen[i] != stamp) {
+                    seen[i] = stamp;
+                    members[m++] = i;
+                }
+            }
+        }
+        Arrays.sort(members, 0, m);
+        for(int j=0;j<m;j++) {
+            local[members[j]] = j;
+        }
+
+        if(m > MAX_ENUM_CELLS || (budget != null && budget.exhausted())) {
+            if(m <= MAX_ENUM_CELLS) {
+                complete = false;
+            }
+            approximate(root, m);
+            return;
+        }
+
+        //Constraints as masks over the local positions
+        int nMasks = 0;
+        for(int k=0;k<numConstraints;k++) {
+            if(constraintOf[k] != root) {
+                continue;
+            }
+            long mask = 0;
+            for(int j=constraintStart[k];j<constraintStart[k+1];j++) {
+                mask |= 1L << local[constraintCells[j]];
+            }
+            masks[nMasks++] = mask;
+        }
+        Arrays.sort(masks, 0, nMasks);
+
+        int slot = slotOf(m, nMasks);
+        if(slotMasks[slot] != null && slotCells[slot] == m && sameMasks(slot, nMasks)) {
+            cacheHits++;
+        }
+        else {
+            cacheMisses++;
+            if(!store(slot, m, nMasks)) {
+                //Out of budget half way, the slot holds nothing useful
+                slotCells[slot] = -1;
+                complete = false;
+                approximate(root, m);
+                return;
+            }
+        }
+
+        double[] prob = slotProb[slot];
+        for(int j=0;j<m;j++) {
+            pitProb[members[j]] = prob[j];
+        }
+    }
+
+    //Cache slot of a shape, from a hash of the cells and the sorted masks
+    private int slotOf(int m, int nMasks) {
+        long h = m;
+        for(int k=0;k<nMasks;k++) {
+            h = (h ^ masks[k]) * 0x9E3779B97F4A7C15L;
+        }
+        return (int) (h >>> 52) & (CACHE_SIZE - 1);
+    }
+
+    private boolean sameMasks(int slot, int nMasks) {
+        if(slotMaskCount[slot] != nMasks) {
+            return false;
+        }
+        long[] sm = slotMasks[slot];
+        for(int k=0;k<nMasks;k++) {
+            if(sm[k] != masks[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Solves the shape and puts it in the slot, reusing the arrays of the slot when they are big enough.
+    //Returns false if the budget ran out first
+    private boolean store(int slot, int m, int nMasks) {
+        if(slotMasks[slot] == null || slotMasks[slot].length < nMasks) {
+            slotMasks[slot] = new long[Math.max(nMasks, 4)];
+        }
+        if(slotProb[slot] == null || slotProb[slot].length < m) {
+            slotProb[slot] = new double[Math.max(m, 4)];
+        }
+        System.arraycopy(masks, 0, slotMasks[slot], 0, nMasks);
+        slotMaskCount[slot] = nMasks;
+        slotCells[slot] = m;
+        return enumerate(m, nMasks, slotProb[slot]);
+    }
+
+    /**
+     * Pit probability of each of the m cells into prob, given that each of
+     * the first nMasks masks needs at least one pit. Tries all 2^m assignments,
+     * returns false if the budget ran out first.
+     */
+    private boolean enumerate(int m, int nMasks, double[] prob) {
+        //Weight of an assignment only depends on how many pits it has
+        for(int k=0;k<=m;k++) {
+            weight[k] = Math.pow(pitPrior, k) * Math.pow(1 - pitPrior, m - k);
+        }
+
+        double total = 0;
+        Arrays.fill(sum, 0, m, 0);
+        long end = 1L << m;
+        for(long a=0;a<end;a++) {
+            if(budget != null && (a & (BUDGET_CHUNK-1)) == BUDGET_CHUNK-1 && !budget.spend(BUDGET_CHUNK)) {
+                return false;
+            }
+            boolean ok = true;
+            for(int k=0;k<nMasks;k++) {
+                if((a & masks[k]) == 0) {
+                    ok = false;
+                    break;
+                }
+            }
+            if(!ok) {
+                continue;
+            }
+            double wt = weight[Long.bitCount(a)];
+            total += wt;
+            for(long bits=a;bits!=0;bits&=bits-1) {
+                sum[Long.numberOfTrailingZeros(bits)] += wt;
+            }
+        }
+
+        for(int j=0;j<m;j++) {
+            prob[j] = total > 0 ? sum[j] / total : pitPrior;
+        }
+        if(budget != null) {
+            budget.spend(end & (BUDGET_CHUNK-1));
+        }
+        return true;
+    }
+
+    /**
+     * For components too big to enumerate: each cell gets the chance it has
+     * under its most telling constraint alone, p / (1 - (1-p)^k) for a
+     * constraint over k cells.
+     */
+    private void approximate(int root, int m) {
+        for(int k=0;k<numConstraints;k++) {
+            if(constraintOf[k] != root) {
+                continue;
+            }
+            int size = constraintStart[k+1] - constraintStart[k];
+            double p = pitPrior / (1 - Math.pow(1 - pitPrior, size));
+            for(int j=constraintStart[k];j<constraintStart[k+1];j++) {
+                int i = constraintCells[j];
+                pitProb[i] = Math.max(pitProb[i], p);
+            }
+        }
+    }
+
+    private int find(int i) {
+        while(parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if(a != b) {
+            parent[Math.max(a, b)] = Math.min(a, b);
+        }
+    }
+
+    //WUMPUS--------------------------------------------------------------------
+    private void updateWumpus() {
+        //The board keeps the candidates up to date as the percepts come in
+        wumpusCandidates = board.wumpusCandidateCount();
+        double p = wumpusCandidates == 0 ? 0 : 1.0 / wumpusCandidates;
+
+        CellSet accessible = board.accessible;
+        for(int i=accessible.nextSetBit(0);i!=-1;i=accessible.nextSetBit(i+1)) {
+            wumpusProb[board.slot(i)] = board.isWumpusCandidate(i) ? p : 0;
+        }
+    }
+}
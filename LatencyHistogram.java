@@ -0,0 +1,98 @@
+package wumpusworld;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of times in nanoseconds, in buckets that grow with the time, so any
+ * time from 1 ns to hours fits in a few hundred buckets and a percentile is
+ * off by at most 1/8 of its value. Many threads can record at the same time.
+ */
+class LatencyHistogram {
+
+    //Times below 16 ns get a bucket each, above that every power of two is split in 8
+    private static final int SUB_BITS = 3;
+    private static final int LINEAR = 16;
+    public static final int BUCKETS = LINEAR + (63 - 4) * (1 << SUB_BITS);
+
+    private AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private LongAdder count = new LongAdder();
+    private LongAdder total = new LongAdder();
+
+    public void record(long nanos) {
+        if(nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(bucket(nanos));
+        count.increment();
+        total.add(nanos);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long totalNanos() {
+        return total.sum();
+    }
+
+    public void reset() {
+        for(int i=0;i<BUCKETS;i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+    }
+
+    /**
+     * Copies the bucket counts into counts, which must hold BUCKETS values.
+     */
+    public void copyBuckets(long[] counts) {
+        for(int i=0;i<BUCKETS;i++) {
+            counts[i] = buckets.get(i);
+        }
+    }
+
+    /**
+     * The time below which the fraction q (0 to 1) of the counts lie, as the
+     * top of the bucket it falls in. 0 if nothing is counted.
+     */
+    public static long percentile(long[] counts, double q) {
+        long n = 0;
+        for(int i=0;i<BUCKETS;i++) {
+            n += counts[i];
+        }
+        if(n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(q * n);
+        long seen = 0;
+        for(int i=0;i<BUCKETS;i++) {
+            seen += counts[i];
+            if(seen >= rank && counts[i] > 0) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS-1);
+    }
+
+    static int bucket(long v) {
+        if(v < LINEAR) {
+            return (int) v;
+        }
+        int e = 63 - Long.numberOfLeadingZeros(v);                  //4 or more
+        int sub = (int) (v >>> (e - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return LINEAR + ((e - 4) << SUB_BITS) + sub;
+    }
+
+    //Largest time that goes in bucket i
+    static long upperBound(int i) {
+        if(i < LINEAR) {
+            return i;
+        }
+        int e = ((i - LINEAR) >> SUB_BITS) + 4;
+        long sub = (i - LINEAR) & ((1 << SUB_BITS) - 1);
+        long low = (1L << e) | (sub << (e - SUB_BITS));
+        return low + (1L << (e - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,349 @@
+package wumpusworld;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Expectimax lookahead over what we could perceive after a move.
+ *
+ * A move is entering one of the frontier cells by the cheapest path. It
+ * kills us with the chance the inference gives the cell a live wumpus, which
+ * ends the game. Otherwise we may fall in a pit, with the chance the
+ * inference gives the cell, which costs 1000 but we climb out and play on
+ * knowing where the pit is. If the cell has no pit we find the gold with the
+ * chance of one cell among the ones that can still hold it. When the game
+ * goes on we stand in the cell with one of the four breeze and stench
+ * outcomes. Each outcome is a new knowledge state that is played on the
+ * same way, until depth moves have been made. The scores are the ones of
+ * the game: the cost of the path (1 a step, 1001 for a known pit on the way,
+ * 11 for shooting the wumpus), -1000 for the wumpus or a pit and 1000 for
+ * the gold.
+ *
+ * The moves from the state we are in are worked out in parallel, on the
+ * fork-join pool the plan is made in or on the pool given to the
+ * constructor. Each first move gets one copy of the state, deeper moves
+ * are made on that copy and taken back with GameState.undo, so a move costs
+ * the changes it makes and not a copy of the board. Two orders of moves can
+ * end in the same knowledge, so the value of a state is kept by the hash of
+ * its board and player cell and only worked out once in a plan.
+ */
+class Lookahead {
+
+    //Scores of the game, on top of the path costs
+    public static final double DEATH = -1000;   //the wumpus, the game is over
+    public static final double PIT = -1000;     //falling in a pit, the game goes on
+    public static final double GOLD = 1000;
+
+    private final int depth;
+    private final ForkJoinPool pool;            //null to use the pool of the caller
+
+    /**
+     * Looks depth moves ahead. A plan made in a fork-join pool, like the
+     * ones of BatchRunner, uses that pool, one made from another thread
+     * works out the moves one after the other.
+     */
+    public Lookahead(int depth) {
+        this(depth, null);
+    }
+
+    /**
+     * Looks depth moves ahead, on pool when the plan is not made in a
+     * fork-join pool already.
+     */
+    public Lookahead(int depth, ForkJoinPool pool) {
+        this.depth = depth;
+        this.pool = pool;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * The frontier cell with the best expected score, -1 if we can not
+     * reach any. The engine must use the inference.
+     *
+     * @param engine Gives the rules for the new knowledge and the work space
+     * @param s What the game knows now, it is not changed
+     * @param current Cell the player stands in
+     */
+    public int plan(AgentEngine engine, GameState s, Cell current) {
+        Plan p = new Plan(engine);
+        Moves moves = p.moves(s, current.index);
+        if(moves.n == 0) {
+            return -1;
+        }
+
+        //The first moves in parallel, the rest of each tree in its own task
+        Move[] tasks = new Move[moves.n];
+        for(int i=0;i<moves.n;i++) {
+            tasks[i] = new Move(p, s, moves, i, depth);
+        }
+        if(ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask.invokeAll(tasks);
+        }
+        else if(pool != null) {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+        else {
+            for(int i=0;i<moves.n;i++) {
+                tasks[i].invoke();
+            }
+        }
+        double[] value = new double[moves.n];
+        for(int i=0;i<moves.n;i++) {
+            value[i] = tasks[i].join();
+        }
+
+        //Ties go to the cheaper path, like the greedy choice
+        int best = 0;
+        for(int i=1;i<moves.n;i++) {
+            if(value[i] > value[best] || (value[i] == value[best] && moves.cost[i] < moves.cost[best])) {
+                best = i;
+            }
+        }
+        return moves.target[best];
+    }
+
+    /**
+     * The moves out of one knowledge state and what can come of them.
+     */
+    private static class Moves {
+        int n = 0;
+        int[] target;
+        int[] cost;
+        double[] wumpus;    //chance the cell has a live wumpus
+        double[] pit;       //chance the cell has a pit
+        double[] breeze;    //chance of a breeze there if we live
+        double[] stench;    //chance of a stench there if we live
+        double gold;        //chance the gold is in a cell we enter that has no pit
+
+        Moves(int size) {
+            target = new int[size];
+            cost = new int[size];
+            wumpus = new double[size];
+            pit = new double[size];
+            breeze = new double[size];
+            stench = new double[size];
+        }
+    }
+
+    /**
+     * One plan: the engine it asks and the values of the states found so far.
+     */
+    private static class Plan {
+        final AgentEngine engine;
+        final ConcurrentHashMap<Long, Double> memo = new ConcurrentHashMap<>();
+
+        Plan(AgentEngine engine) {
+            this.engine = engine;
+        }
+
+        Moves moves(GameState s, int current) {
+            Board board = s.board;
+            AgentEngine.Workspace ws = engine.borrow();
+            try {
+                Inference inf = ws.inference;
+                inf.update(board);
+                ws.pathSearch.run(board, board.get(current));
+
+                Moves m = new Moves(board.frontierSize());
+                int open = board.size() - board.visited.cardinality() - board.pit.cardinality();
+                m.gold = open > 0 ? 1.0 / open : 0;
+
+                for(int i=0;i<board.frontierSize();i++) {
+                    int t = board.frontierAt(i);
+                    int cost = ws.pathSearch.cost(t);
+                    if(cost >= PathSearch.NO_PATH) {
+                        continue;
+                    }
+                    Cell c = board.get(t);
+                    double pit = inf.pitProbability(c);
+                    double wumpus = board.isWumpus(c) ? 0 : inf.wumpusProbability(c);
+
+                    //The neighbours are taken as independent of the cell and each other
+                    double noBreeze = 1;
+                    double stench = 0;
+                    for(int d=0;d<4;d++) {
+                        Cell nb = board.neighbour(c, d);
+                        if(nb == null || board.visited.get(nb.index)) {
+                            continue;
+                        }
+                        noBreeze *= 1 - pitChance(board, inf, nb);
+                        stench += wumpusChance(s, inf, nb);
+                    }
+
+                    m.target[m.n] = t;
+                    m.cost[m.n] = cost;
+                    m.wumpus[m.n] = wumpus;
+                    m.pit[m.n] = pit;
+                    m.breeze[m.n] = 1 - noBreeze;
+                    m.stench[m.n] = Math.min(1, stench);
+                    m.n++;
+                }
+                return m;
+            }
+            finally {
+                engine.release(ws);
+            }
+        }
+
+        //The inference only knows the frontier, cells further out are at the prior
+        private double pitChance(Board board, Inference inf, Cell c) {
+            if(board.accessible.get(c.index)) {
+                return inf.pitProbability(c);
+            }
+            return inf.getPitPrior();
+        }
+
+        private double wumpusChance(GameState s, Inference inf, Cell c) {
+            Board board = s.board;
+            if(s.wumpusFound) {
+                return board.isWumpus(c) ? 1 : 0;
+            }
+            if(board.accessible.get(c.index)) {
+                return inf.wumpusProbability(c);
+            }
+            //A cell away from the visited ones can only hold it if we smelled nothing yet
+            int candidates = inf.wumpusCandidates();
+            return board.stench.isEmpty() && candidates > 0 ? 1.0 / candidates : 0;
+        }
+
+        /**
+         * Expected score of playing on from s, the best of its moves.
+         */
+        double value(GameState s, int current, int depth) {
+            //The depth left goes in as a feature of its own
+            long key = s.board.hash ^ Board.zobrist(Board.Z_PLAYER, current) ^ Board.zobrist(Board.Z_DEPTH, depth);
+            Double known = memo.get(key);
+            if(known != null) {
+                return known;
+            }
+
+            Moves m = moves(s, current);
+            double best = 0;
+            for(int i=0;i<m.n;i++) {
+                double v = value(s, m, i, depth);
+                if(i == 0 || v > best) {
+                    best = v;
+                }
+            }
+            memo.put(key, best);
+            return best;
+        }
+
+        /**
+         * Expected score of the move i out of s, and playing on for depth-1 moves.
+         */
+        double value(GameState s, Moves m, int i, int depth) {
+            double alive = 1 - m.wumpus[i];
+            double pit = alive * m.pit[i];
+            double safe = alive - pit;
+            double v = -m.cost[i] + m.wumpus[i]*DEATH + pit*PIT + safe*m.gold*GOLD;
+            if(depth > 1) {
+                if(pit > 0) {
+                    v += pit * playOn(s, m, i, true, depth);
+                }
+                if(safe > 0) {
+                    v += safe * (1 - m.gold) * playOn(s, m, i, false, depth);
+                }
+            }
+            return v;
+        }
+
+        //Expected score of playing on after entering the target of move i alive, in a pit or not,
+        //over the breeze and stench we may perceive there
+        private double playOn(GameState s, Moves m, int i, boolean inPit, int depth) {
+            int t = m.target[i];
+            double v = 0;
+            for(int p=0;p<4;p++) {
+                boolean breeze = (p & 1) != 0;
+                boolean stench = (p & 2) != 0;
+                double chance = (breeze ? m.breeze[i] : 1 - m.breeze[i]) * (stench ? m.stench[i] : 1 - m.stench[i]);
+                if(chance == 0) {
+                    continue;
+                }
+                int mark = s.mark();
+                enter(s, t, Outcome.of(breeze, stench, inPit));
+                v += chance * value(s, t, depth-1);
+                s.undo(mark);
+            }
+            return v;
+        }
+
+        //Makes s know what it would after entering t alive and perceiving the outcome
+        private void enter(GameState s, int t, Outcome outcome) {
+            Cell c = s.board.get(t);
+            engine.newSpace(s, outcome, c.px+1, c.py+1);
+            s.wumpusFound = engine.findWumpus(s);
+        }
+    }
+
+    /**
+     * The value of one of the first moves.
+     */
+    private static class Move extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final Plan plan;
+        private final GameState s;
+        private final Moves moves;
+        private final int i;
+        private final int depth;
+
+        Move(Plan plan, GameState s, Moves moves, int i, int depth) {
+            this.plan = plan;
+            this.s = s;
+            this.moves = moves;
+            this.i = i;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Double compute() {
+            //The moves after this one are tried on a copy of our own
+            return plan.value(depth > 1 ? new GameState(s) : s, moves, i, depth);
+        }
+    }
+
+    /**
+     * What we perceive in the cell we imagine entering, for newSpace.
+     */
+    private static class Outcome implements Percepts {
+        //One for each of the eight outcomes, bit 0 is the breeze, bit 1 the stench and bit 2 the pit
+        private static final Outcome[] ALL = new Outcome[8];
+        static {
+            for(int i=0;i<ALL.length;i++) {
+                ALL[i] = new Outcome((i & 1) != 0, (i & 2) != 0, (i & 4) != 0);
+            }
+        }
+
+        private final boolean breeze;
+        private final boolean stench;
+        private final boolean inPit;
+
+        static Outcome of(boolean breeze, boolean stench, boolean inPit) {
+            return ALL[(breeze ? 1 : 0) | (stench ? 2 : 0) | (inPit ? 4 : 0)];
+        }
+
+        Outcome(boolean breeze, boolean stench, boolean inPit) {
+            this.breeze = breeze;
+            this.stench = stench;
+            this.inPit = inPit;
+        }
+
+        public boolean hasBreeze(int x, int y) {
+            return breeze;
+        }
+
+        public boolean hasStench(int x, int y) {
+            return stench;
+        }
+
+        public boolean isInPit() {
+            return inPit;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package wumpusworld;
+
+import java.util.ArrayList;
+
+/**
+ * A list of cells to walk, from the target back to the start, and its cost.
+ */
+class Path {
+    //public Cell target;
+    public ArrayList<Cell> cellList;
+    public int cost = 0;
+
+    public Path() {
+        cellList = new ArrayList<>();
+    }
+}
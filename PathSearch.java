@@ -0,0 +1,253 @@
+package wumpusworld;
+
+import java.util.ArrayList;
+
+/**
+ * Finds the cheapest path from the player to every accessible cell in one go.
+ *
+ * A single Dijkstra search is run over the visited cells from the cell the
+ * player stands in. Entering a cell costs 1, plus 1001 if it is a known pit
+ * (falling in and climbing up again). The last step into an accessible cell
+ * costs 1, plus 11 if the cell holds the wumpus (we shoot before moving).
+ * These are the same rules bestPathTo in AgentEngine uses, so the costs match.
+ * The 1001 and 11 are the defaults of the CostModel the search is given.
+ *
+ * A PathSearch is work space, it can search on any board. The arrays are
+ * indexed by the slot of a cell (see Board) and made again only when the
+ * board has more slots than they hold, so on a sparse board they grow with
+ * the cells we reached and not with the world.
+ */
+class PathSearch {
+
+    //Cost used for cells we can not reach, same as in bestPathTo
+    public static final int NO_PATH = 1000000;
+
+    private Board board;
+    private CostModel costs = CostModel.DEFAULT;
+
+    //Search state, indexed by cell slot
+    private int[] dist;             //cheapest cost to stand in a visited cell
+    private int[] prev;             //slot of the cell we came from, -1 for the start
+    private boolean[] settled;
+    private int[] targetCost;       //cheapest cost to enter an accessible cell
+    private int[] targetPrev;       //visited cell we enter the accessible cell from
+
+    //The last traced path, cell indices from the target back to the start
+    public int[] path;
+
+    //Work done by the last call to run, both 0 if it had nothing to do
+    public int nodesExpanded = 0;   //visited cells taken off the heap
+    public int pathsFound = 0;      //accessible cells we found a path to
+
+    //Board, version and start cell of the last run, the results hold until one of them changes
+    private int lastVersion = -1;
+    private int lastStart = -1;
+
+    //Binary heap of (cost << 32 | slot) entries
+    private long[] heap;
+    private int heapSize;
+
+    /**
+     * Sets the extra costs of pits and the wumpus. The next run searches again.
+     */
+    public void setCostModel(CostModel costs) {
+        this.costs = costs;
+        board = null;
+    }
+
+    private void allocate(int n) {
+        dist = new int[n];
+        prev = new int[n];
+        settled = new boolean[n];
+        targetCost = new int[n];
+        targetPrev = new int[n];
+        heap = new long[4*n + 1];
+        path = new int[n];
+    }
+
+    /**
+     * Runs the search on the board from the given cell. Afterwards pathTo
+     * can be asked for any accessible cell. Nothing is done if neither the
+     * board nor the start changed since the last run.
+     */
+    public void run(Board board, Cell start) {
+
+        nodesExpanded = 0;
+        pathsFound = 0;
+        if(board == this.board && board.version == lastVersion && start.index == lastStart) {
+            return;
+        }
+        int n = board.slotCount();
+        if(dist == null || dist.length < n) {
+            allocate(board.isSparse() ? 2*n : n);
+        }
+        this.board = board;
+        lastVersion = board.version;
+        lastStart = start.index;
+
+        for(int i=0;i<n;i++) {
+            dist[i] = NO_PATH;
+            prev[i] = -1;
+            settled[i] = false;
+            targetCost[i] = NO_PATH;
+            targetPrev[i] = -1;
+        }
+        heapSize = 0;
+
+        int s = start.slot;
+        dist[s] = enterCost(start);
+        push(dist[s], s);
+
+        while(heapSize > 0) {
+            long top = pop();
+            int v = (int) top;
+
+            //Skip stale entries, a cheaper one was already handled
+            if(settled[v]) {
+                continue;
+            }
+            settled[v] = true;
+            nodesExpanded++;
+
+            Cell c = board.atSlot(v);
+            for(int d=0;d<4;d++) {
+                relax(v, board.neighbour(c, d));
+            }
+        }
+    }
+
+    private void relax(int v, Cell nb) {
+
+        //Outside the board
+        if(nb == null) {
+            return;
+        }
+
+        if(board.visited.get(nb.index)) {
+            int n = nb.slot;
+            //Walk through the visited cell
+            int cost = dist[v] + enterCost(nb);
+            if(cost < dist[n]) {
+                dist[n] = cost;
+                prev[n] = v;
+                push(cost, n);
+            }
+        }
+        else if(board.accessible.get(nb.index)) {
+            //Step into the accessible cell, this is where a path ends
+            int n = nb.slot;
+            int cost = dist[v] + 1;
+            if(board.isWumpus(nb)) {
+                cost += costs.shootCost();      //for shooting wumpus
+            }
+            if(cost < targetCost[n]) {
+                if(targetCost[n] == NO_PATH) {
+                    pathsFound++;
+                }
+                targetCost[n] = cost;
+                targetPrev[n] = v;
+            }
+        }
+    }
+
+    /**
+     * Cost of the cheapest path to the accessible cell t, NO_PATH if we can not reach it.
+     */
+    public int cost(int t) {
+        return targetCost[board.slot(t)];
+    }
+
+    /**
+     * Puts the cheapest path to the accessible cell t in the path array,
+     * from t back to the start, and returns its length. The length is 1
+     * (just t) if we can not reach it.
+     */
+    public int tracePath(int t) {
+        int len = 0;
+        path[len++] = t;
+        for(int i=targetPrev[board.slot(t)];i!=-1;i=prev[i]) {
+            path[len++] = board.atSlot(i).index;
+        }
+        return len;
+    }
+
+    /**
+     * Returns the cheapest path to an accessible cell found by the last run.
+     * The cell list goes from the target back to the player, like the paths
+     * built by bestPathTo.
+     */
+    public Path pathTo(Cell target) {
+
+        Path p = new Path();
+        p.cellList.add(target);
+
+        int t = target.slot;
+        if(targetPrev[t] == -1) {
+            p.cost = NO_PATH;
+            return p;
+        }
+
+        p.cost = targetCost[t];
+        for(int i=targetPrev[t];i!=-1;i=prev[i]) {
+            p.cellList.add(board.atSlot(i));
+        }
+
+        return p;
+    }
+
+    /**
+     * Paths to all the given cells, in the same order.
+     */
+    public ArrayList<Path> pathsTo(ArrayList<Cell> cList) {
+        ArrayList<Path> pathList = new ArrayList<>();
+        for(int i=0;i<cList.size();i++) {
+            pathList.add(pathTo(cList.get(i)));
+        }
+        return pathList;
+    }
+
+    private int enterCost(Cell c) {
+        int cost = 1;
+        if(board.isPit(c)) {                 //if fall into a pit cost is 1000 and to climb up 1
+            cost += costs.pitCost();
+        }
+        return cost;
+    }
+
+    //Heap functions------------------------------------------------------------
+    private void push(int cost, int v) {
+        long e = ((long) cost << 32) | v;
+        int i = heapSize++;
+        while(i > 0) {
+            int parent = (i-1) >> 1;
+            if(heap[parent] <= e) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = e;
+    }
+
+    private long pop() {
+        long top = heap[0];
+        long last = heap[--heapSize];
+        int i = 0;
+        while(true) {
+            int child = 2*i + 1;
+            if(child >= heapSize) {
+                break;
+            }
+            if(child+1 < heapSize && heap[child+1] < heap[child]) {
+                child++;
+            }
+            if(last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+}
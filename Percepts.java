@@ -0,0 +1,15 @@
+package wumpusworld;
+
+/**
+ * What the player perceives, the part of a world the rules read when we
+ * enter a new space (see AgentEngine.newSpace). The lookahead answers these
+ * for the spaces it imagines entering. Coordinates start at 1.
+ */
+interface Percepts {
+
+    public boolean hasBreeze(int x, int y);
+
+    public boolean hasStench(int x, int y);
+
+    public boolean isInPit();
+}
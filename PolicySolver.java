@@ -0,0 +1,363 @@
+package wumpusworld;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Solves the moves of a small board offline and writes them as a PolicyTable.
+ *
+ * A small board has few enough worlds to play them all: every way the pits
+ * can lie in the cells other than the start, times every cell the wumpus can
+ * be in. The gold does not have to be played out. A game goes the same way
+ * whatever cell the gold is in until the agent enters that cell, so each
+ * world is played without gold, and the score the gold would have given is
+ * counted for each cell as the agent first enters it. Each world counts
+ * with the chance of its pits, so the averages over all of them are the
+ * exact expected scores, with no sampling noise.
+ *
+ * The moves are improved by policy iteration. A round plays the policy (the
+ * table of the round before, and the live engine in the states that are not
+ * in it) in every world. In every state a game meets, each move the agent
+ * could make there (walking to one of the frontier cells) is tried, and the
+ * policy plays on from it. Summed over the worlds that meet the state, that
+ * is the exact expected score of each move. The next policy takes the best
+ * move in every state, which can only raise the expected score of the game.
+ * A last pass plays the final policy once more to find the states it gets
+ * into, and only those go in the table.
+ *
+ * A state is what the agent knows and the cell it stands in, like in the
+ * DecisionCache. The direction the player faces is not part of it, so the
+ * best move of a state is the best on average over the directions the
+ * games reach it in.
+ *
+ * On 4x4 there are 491520 worlds and a round meets about 1.8 million
+ * states, which takes some minutes a round on one core and about 1.5 GB
+ * of heap. The table of the final policy has about 1.3 million states.
+ *
+ * Usage: PolicySolver file [size] [pitChance] [rounds] [threads]
+ */
+public class PolicySolver {
+
+    //Pit layouts played by one task before it stops splitting
+    private static final int CHUNK = 16;
+
+    //What grabbing the gold adds to the score, the gold less the action
+    private static final int GRAB = 999;
+
+    //A move must beat the one the policy made by more than this to replace it
+    private static final double TIE = 1e-9;
+
+    private int width;
+    private int height;
+    private double pitChance;
+    private AgentEngine engine;
+
+    /**
+     * Solves boards of the given size, with pits at the given chance, for
+     * an agent with the inference at that pit prior.
+     */
+    public PolicySolver(int width, int height, double pitChance) {
+        if(width*height > PolicyTable.MAX_CELLS) {
+            throw new IllegalArgumentException("Boards of up to " + PolicyTable.MAX_CELLS + " cells can be solved, not " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.pitChance = pitChance;
+        engine = new AgentEngine(Trace.NONE, pitChance, new DecisionCache(1 << 20), null);
+    }
+
+    /**
+     * A state met while playing, and what each move out of it scored.
+     */
+    private static class Node {
+        int n;              //moves, one for each frontier cell we can reach
+        int[] target;
+        long[] path;        //packed, see PolicyTable.pack, 0 if too long for a table
+        double[] score;     //chance of the world times expected score of the move, summed over the worlds
+        double weight;      //chances of the worlds that met the state, summed
+        int played = -1;    //the move the policy made
+
+        Node(Board board, PathSearch search) {
+            int size = board.frontierSize();
+            target = new int[size];
+            path = new long[size];
+            score = new double[size];
+            for(int i=0;i<size;i++) {
+                int t = board.frontierAt(i);
+                if(search.cost(t) >= PathSearch.NO_PATH) {
+                    continue;
+                }
+                int len = search.tracePath(t);
+                target[n] = t;
+                path[n] = len <= PolicyTable.MAX_PATH ? PolicyTable.pack(search.path, len) : 0;
+                n++;
+            }
+        }
+
+        synchronized void add(double chance, double[] scores) {
+            weight += chance;
+            if(scores != null) {
+                for(int i=0;i<n;i++) {
+                    score[i] += chance * scores[i];
+                }
+            }
+        }
+
+        synchronized void played(int cell) {
+            for(int i=0;i<n;i++) {
+                if(target[i] == cell) {
+                    played = i;
+                }
+            }
+        }
+
+        //The move of the next policy. Another move only wins by more than rounding, so a state
+        //whose moves tie keeps the one it has
+        int best() {
+            int best = played;
+            for(int i=0;i<n;i++) {
+                if(best == -1 || score[i] > score[best] + TIE*weight) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * One pass of a policy over all the worlds.
+     */
+    private static class Round {
+        final AgentEngine engine;
+        final boolean rollouts;         //if every move of every state is tried
+        final ConcurrentHashMap<Long, Node> nodes = new ConcurrentHashMap<>();
+        final DoubleAdder score = new DoubleAdder();
+        final DoubleAdder weight = new DoubleAdder();
+
+        Round(AgentEngine engine, boolean rollouts) {
+            this.engine = engine;
+            this.rollouts = rollouts;
+        }
+
+        //Expected score of a game played by the policy
+        double expectedScore() {
+            return score.sum() / weight.sum();
+        }
+    }
+
+    /**
+     * Solves the board with the given number of rounds of policy iteration
+     * on a pool with the given number of threads. Each round prints the
+     * exact expected score of the policy it played, the last line the one
+     * of the table.
+     */
+    public PolicyTable solve(int rounds, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            PolicyTable policy = null;
+            HashMap<Long, Long> moves = new HashMap<>();
+            for(int k=1;k<=rounds;k++) {
+                long start = System.nanoTime();
+                Round r = new Round(engine.withPolicy(policy), true);
+                pool.invoke(new Layouts(r, 0, 1 << (width*height - 1)));
+
+                //The new policy has the best move of every state of this round, and keeps the
+                //moves of the old one in the states this round did not get into
+                int changed = 0;
+                for(Long key : r.nodes.keySet()) {
+                    Node node = r.nodes.get(key);
+                    int best = node.best();
+                    if(best == -1 || node.path[best] == 0) {
+                        continue;
+                    }
+                    if(best != node.played) {
+                        changed++;
+                    }
+                    moves.put(key, node.path[best]);
+                }
+                long[] keys = new long[moves.size()];
+                long[] paths = new long[moves.size()];
+                int n = 0;
+                for(Long key : moves.keySet()) {
+                    keys[n] = key;
+                    paths[n] = moves.get(key);
+                    n++;
+                }
+                policy = PolicyTable.build(width, height, pitChance, keys, paths, n);
+
+                System.out.println(String.format("Round %d: %d states, expected score %.2f, better move in %d states, %.1f s",
+                        k, r.nodes.size(), r.expectedScore(), changed, (System.nanoTime() - start) / 1e9));
+            }
+
+            //Only the states the final policy gets into go in the table
+            long start = System.nanoTime();
+            Round r = new Round(engine.withPolicy(policy), false);
+            pool.invoke(new Layouts(r, 0, 1 << (width*height - 1)));
+            long[] keys = new long[r.nodes.size()];
+            long[] paths = new long[r.nodes.size()];
+            int n = 0;
+            for(Long key : r.nodes.keySet()) {
+                Node node = r.nodes.get(key);
+                if(node.played != -1 && node.path[node.played] != 0) {
+                    keys[n] = key;
+                    paths[n] = node.path[node.played];
+                    n++;
+                }
+            }
+            System.out.println(String.format("Final: %d states, expected score %.2f, %.1f s",
+                    n, r.expectedScore(), (System.nanoTime() - start) / 1e9));
+            return PolicyTable.build(width, height, pitChance, keys, paths, n);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    //Plays the pit layouts from to to-1, each with the wumpus in every cell it can be in
+    private void play(Round r, int from, int to) {
+        int cells = width*height;
+        GameState s = r.engine.newGame(width, height);
+        AgentEngine.Workspace ws = r.engine.newWorkspace();
+        for(int pits=from;pits<to;pits++) {
+            double chance = chance(pits);
+            for(int c=1;c<cells;c++) {
+                s.reset();
+                double v = playOn(r, s, world(pits, c), 0, chance, ws);
+                r.score.add(chance * v);
+                r.weight.add(chance);
+            }
+        }
+    }
+
+    //The expected score from here to the end of the game of the policy in the world w, which has no
+    //gold, with the gold in any of the cells not visited yet, less start. The player has just walked
+    //into a cell it has not taken in. With a work space every state met is added to the round
+    private double playOn(Round r, GameState s, SimWorld w, int start, double chance, AgentEngine.Workspace ws) {
+        Board board = s.board;
+
+        //The gold is never in the start cell
+        int cells = board.size() - board.visited.cardinality() - (board.visited.get(0) ? 0 : 1);
+        int left = cells;
+        double sum = 0;
+        while(!w.gameOver()) {
+            int x = w.getPlayerX();
+            int y = w.getPlayerY();
+            Cell current = board.get(x-1, y-1);
+            if(board.visited.get(current.index)) {
+                break;      //The last turn got nowhere new, there is nothing left we can reach
+            }
+            if(current.index != 0) {
+                //Had the gold been here we would grab it now
+                sum += w.getScore() + GRAB;
+                left--;
+            }
+            if(ws == null) {
+                r.engine.doAction(s, w);
+                continue;
+            }
+            r.engine.newSpace(s, w, x, y);
+            s.wumpusFound = r.engine.findWumpus(s);
+            Node node = visit(r, s, w, current, chance, ws);
+            r.engine.doAction(s, w);
+            node.played(board.index(w.getPlayerX()-1, w.getPlayerY()-1));
+        }
+
+        //Killed by the wumpus or stuck, the gold in a cell we did not get to is never found
+        if(cells == 0) {
+            return w.getScore() - start;
+        }
+        return (sum + left * (double) w.getScore()) / cells - start;
+    }
+
+    //Adds the state the game is in to the round and, if the round does, tries each move out of it
+    private Node visit(Round r, GameState s, SimWorld w, Cell current, double chance, AgentEngine.Workspace ws) {
+        Board board = s.board;
+        long key = r.engine.stateKey(s, current);
+        Node node = r.nodes.get(key);
+        if(node == null || r.rollouts) {
+            ws.pathSearch.run(board, current);
+        }
+        if(node == null) {
+            node = r.nodes.computeIfAbsent(key, k -> new Node(board, ws.pathSearch));
+        }
+        if(!r.rollouts) {
+            node.add(chance, null);
+            return node;
+        }
+
+        double[] scores = new double[node.n];
+        for(int i=0;i<node.n;i++) {
+            //Walk to the cell in a fork of the world and play on, then forget it all
+            int mark = s.mark();
+            SimWorld f = w.fork();
+            ws.current = current;
+            r.engine.finishTurn(s, ws, f, node.target[i], false);
+            scores[i] = playOn(r, s, f, w.getScore(), 0, null);
+            s.undo(mark);
+        }
+        node.add(chance, scores);
+        return node;
+    }
+
+    //The world with a pit in cell i+1 for every bit i of pits, the wumpus in cell wumpus and no gold
+    private SimWorld world(int pits, int wumpus) {
+        SimWorld w = new SimWorld(width, height);
+        for(int b=pits;b!=0;b&=b-1) {
+            int c = Integer.numberOfTrailingZeros(b) + 1;
+            w.addPit(c / height + 1, c % height + 1);
+        }
+        w.addWumpus(wumpus / height + 1, wumpus % height + 1);
+        return w;
+    }
+
+    //Chance of the pit layout, every cell but the start has a pit with pitChance
+    private double chance(int pits) {
+        int k = Integer.bitCount(pits);
+        return Math.pow(pitChance, k) * Math.pow(1 - pitChance, width*height - 1 - k);
+    }
+
+    //Splits the range of pit layouts in halves until it is small enough to play
+    private class Layouts extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private Round round;
+        private int from;
+        private int to;
+
+        Layouts(Round round, int from, int to) {
+            this.round = round;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if(to - from <= CHUNK) {
+                play(round, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Layouts(round, from, mid), new Layouts(round, mid, to));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.out.println("Usage: PolicySolver file [size] [pitChance] [rounds] [threads]");
+            return;
+        }
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        double pitChance = args.length > 2 ? Double.parseDouble(args[2]) : 0.2;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.println(String.format("%dx%d, pit chance %.2f, %d rounds, %d threads", size, size, pitChance, rounds, threads));
+        PolicyTable table = new PolicySolver(size, size, pitChance).solve(rounds, threads);
+        table.write(new File(args[0]));
+        System.out.println(String.format("%d states written to %s", table.size(), args[0]));
+    }
+}
@@ -0,0 +1,302 @@
+package wumpusworld;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The move to make in every knowledge state a small board can get into,
+ * solved once offline by PolicySolver, so a game on that board size plays
+ * each turn with one lookup instead of the inference and the path search.
+ *
+ * A state is found by its key, the Zobrist hash of the board, the player
+ * cell and the board size (see AgentEngine.stateKey). The keys are placed
+ * with a perfect hash, hash and displace: every key falls in a bucket by
+ * its low bits, and each bucket has a seed that was picked so the keys of
+ * all buckets land in slots of their own. A lookup reads the seed of its
+ * bucket and then the one slot the key can be in, so it costs two reads
+ * whatever the size of the table. A key that is not in the table finds
+ * another key or an empty slot there.
+ *
+ * The move is the path the agent walks, like in the DecisionCache, packed
+ * into a long with 4 bits a cell, so only boards of up to MAX_CELLS cells
+ * can have a table.
+ *
+ * HEADER: "WPT2", width, height, entries, buckets, slots (ints), pit
+ *         chance the table was solved for (double). Big endian.
+ * BUCKETS: the seed of each bucket (ints), an even number of them.
+ * SLOTS: key and packed path of each slot (longs), both 0 in an empty slot.
+ *
+ * The file is memory mapped, so the table is read from the page cache and
+ * the agents of every process on the machine share one copy.
+ */
+class PolicyTable implements Closeable {
+
+    //Version 2 since the board size went into the keys by features of its own
+    public static final byte[] MAGIC = { 'W', 'P', 'T', '2' };
+    public static final int HEADER_SIZE = 32;
+    public static final int SLOT_SIZE = 16;
+
+    //Largest board a table can be made for, a cell has to fit in 4 bits
+    public static final int MAX_CELLS = 16;
+
+    //Longest path a slot holds, the length takes the top 4 bits
+    public static final int MAX_PATH = 15;
+
+    //Seeds tried for one bucket before the table is given up on
+    private static final int MAX_SEED = 1 << 24;
+
+    private int width;
+    private int height;
+    private int entries;
+    private int buckets;
+    private int slots;
+    private double pitChance;
+    private int slotsAt;
+
+    private ByteBuffer buffer;
+    private RandomAccessFile raf;       //null for a table made in memory
+
+    /**
+     * Maps the table in file.
+     */
+    public PolicyTable(File file) throws IOException {
+        raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too big for a policy table");
+            }
+            read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file.toString());
+        }
+        catch(IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    //A table made by build, in memory
+    private PolicyTable(ByteBuffer buffer) {
+        try {
+            read(buffer, "table");
+        }
+        catch(IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void read(ByteBuffer b, String name) throws IOException {
+        for(int i=0;i<MAGIC.length;i++) {
+            if(b.limit() < HEADER_SIZE || b.get(i) != MAGIC[i]) {
+                throw new IOException(name + " is not a policy table");
+            }
+        }
+        width = b.getInt(4);
+        height = b.getInt(8);
+        entries = b.getInt(12);
+        buckets = b.getInt(16);
+        slots = b.getInt(20);
+        pitChance = b.getDouble(24);
+        slotsAt = HEADER_SIZE + 4*buckets;
+        if(b.limit() < slotsAt + (long) slots*SLOT_SIZE) {
+            throw new IOException(name + " is shorter than its " + slots + " slots");
+        }
+        buffer = b;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public double getPitChance() {
+        return pitChance;
+    }
+
+    /**
+     * Number of states in the table.
+     */
+    public int size() {
+        return entries;
+    }
+
+    /**
+     * If the table is for boards of the size of b.
+     */
+    public boolean covers(Board b) {
+        return b.width == width && b.height == height;
+    }
+
+    /**
+     * Puts the path of the state with the given key in path, from the
+     * target back to the start, and returns its length. 0 if the state is
+     * not in the table. path must hold MAX_PATH cells. Safe to call from
+     * many threads.
+     */
+    public int get(long key, int[] path) {
+        int seed = buffer.getInt(HEADER_SIZE + 4*bucket(key, buckets));
+        int at = slotsAt + SLOT_SIZE*slot(key, seed, slots);
+        if(buffer.getLong(at) != key) {
+            return 0;
+        }
+        return unpack(buffer.getLong(at + 8), path);
+    }
+
+    public void close() throws IOException {
+        if(raf != null) {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes the table to file, to be mapped by the constructor.
+     */
+    public void write(File file) throws IOException {
+        try(FileOutputStream out = new FileOutputStream(file)) {
+            FileChannel channel = out.getChannel();
+            ByteBuffer b = buffer.duplicate();
+            b.clear();
+            while(b.hasRemaining()) {
+                channel.write(b);
+            }
+        }
+    }
+
+    //Building------------------------------------------------------------------
+    /**
+     * A table in memory with the first n keys and their paths, packed with
+     * pack. The keys must all be different.
+     */
+    public static PolicyTable build(int width, int height, double pitChance, long[] keys, long[] paths, int n) {
+        if(width*height > MAX_CELLS) {
+            throw new IllegalArgumentException("A policy table holds boards of up to " + MAX_CELLS + " cells, not " + width + "x" + height);
+        }
+
+        //About four keys a bucket and one slot in nine left empty
+        int buckets = (n/4 + 2) & ~1;
+        int slots = n + n/8 + 1;
+
+        //The keys sorted by bucket, the keys of bucket b are order[first[b]] to order[first[b+1]-1]
+        int[] first = new int[buckets+1];
+        for(int i=0;i<n;i++) {
+            first[bucket(keys[i], buckets) + 1]++;
+        }
+        int largest = 0;
+        for(int b=0;b<buckets;b++) {
+            largest = Math.max(largest, first[b+1]);
+            first[b+1] += first[b];
+        }
+        int[] order = new int[n];
+        int[] next = new int[buckets];
+        for(int i=0;i<n;i++) {
+            int b = bucket(keys[i], buckets);
+            order[first[b] + next[b]++] = i;
+        }
+
+        //The big buckets are the hard ones to place, so they go first while most slots are free
+        int[] seeds = new int[buckets];
+        int[] placed = new int[slots];      //key index + 1 in each slot, 0 if empty
+        int[] tried = new int[largest];
+        for(int size=largest;size>0;size--) {
+            for(int b=0;b<buckets;b++) {
+                if(first[b+1] - first[b] == size) {
+                    seeds[b] = place(keys, order, first[b], size, placed, tried);
+                }
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4*buckets + SLOT_SIZE*slots);
+        buffer.put(MAGIC);
+        buffer.putInt(width);
+        buffer.putInt(height);
+        buffer.putInt(n);
+        buffer.putInt(buckets);
+        buffer.putInt(slots);
+        buffer.putDouble(pitChance);
+        for(int b=0;b<buckets;b++) {
+            buffer.putInt(seeds[b]);
+        }
+        for(int s=0;s<slots;s++) {
+            int i = placed[s] - 1;
+            buffer.putLong(i >= 0 ? keys[i] : 0);
+            buffer.putLong(i >= 0 ? paths[i] : 0);
+        }
+        return new PolicyTable(buffer);
+    }
+
+    //Finds a seed that puts the size keys of order[from..] in slots that are free and
+    //different from each other, takes the slots and returns the seed
+    private static int place(long[] keys, int[] order, int from, int size, int[] placed, int[] tried) {
+        int slots = placed.length;
+        for(int seed=0;seed<MAX_SEED;seed++) {
+            int k = 0;
+            for(;k<size;k++) {
+                int s = slot(keys[order[from + k]], seed, slots);
+                if(placed[s] != 0 || contains(tried, k, s)) {
+                    break;
+                }
+                tried[k] = s;
+            }
+            if(k == size) {
+                for(k=0;k<size;k++) {
+                    placed[tried[k]] = order[from + k] + 1;
+                }
+                return seed;
+            }
+        }
+        throw new IllegalStateException("No seed places a bucket of " + size + " keys, are some keys the same?");
+    }
+
+    private static boolean contains(int[] a, int n, int v) {
+        for(int i=0;i<n;i++) {
+            if(a[i] == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //The keys are Zobrist hashes, their low bits are already random
+    private static int bucket(long key, int buckets) {
+        return (int) Long.remainderUnsigned(key, buckets);
+    }
+
+    //The key mixed with the seed by a SplitMix step, so each seed scatters the keys of a bucket anew
+    private static int slot(long key, int seed, int slots) {
+        long z = key + (seed + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (int) Long.remainderUnsigned(z ^ (z >>> 31), slots);
+    }
+
+    //Paths---------------------------------------------------------------------
+    /**
+     * The first len cells of path packed into a long, cell i in bits 4i to
+     * 4i+3 and the length in the top 4 bits. len must be at most MAX_PATH.
+     */
+    public static long pack(int[] path, int len) {
+        long p = (long) len << 60;
+        for(int i=0;i<len;i++) {
+            p |= (long) path[i] << (4*i);
+        }
+        return p;
+    }
+
+    /**
+     * Unpacks a path made by pack into path and returns its length.
+     */
+    public static int unpack(long packed, int[] path) {
+        int len = (int) (packed >>> 60);
+        for(int i=0;i<len;i++) {
+            path[i] = (int) (packed >>> (4*i)) & 15;
+        }
+        return len;
+    }
+}
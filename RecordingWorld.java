@@ -0,0 +1,80 @@
+package wumpusworld;
+
+/**
+ * Passes everything on to the world it wraps and keeps the events of the
+ * game for GameRecorder.
+ */
+class RecordingWorld implements GameWorld {
+
+    private GameWorld w;
+    int width;
+    int height;
+    int startX;
+    int startY;
+    int startDir;
+    int startPercepts;
+
+    byte[] events = new byte[64];
+    int length = 0;
+
+    RecordingWorld(GameWorld world, int width, int height) {
+        w = world;
+        this.width = width;
+        this.height = height;
+        startX = w.getPlayerX();
+        startY = w.getPlayerY();
+        startDir = w.getDirection();
+        startPercepts = GameRecorder.percepts(w);
+    }
+
+    public int getPlayerX() {
+        return w.getPlayerX();
+    }
+
+    public int getPlayerY() {
+        return w.getPlayerY();
+    }
+
+    public int getDirection() {
+        return w.getDirection();
+    }
+
+    public boolean hasBreeze(int x, int y) {
+        return w.hasBreeze(x, y);
+    }
+
+    public boolean hasStench(int x, int y) {
+        return w.hasStench(x, y);
+    }
+
+    public boolean hasGlitter(int x, int y) {
+        return w.hasGlitter(x, y);
+    }
+
+    public boolean isInPit() {
+        return w.isInPit();
+    }
+
+    public boolean gameOver() {
+        return w.gameOver();
+    }
+
+    public int getScore() {
+        return w.getScore();
+    }
+
+    public void doAction(int action) {
+        //Actions after the end of the game do nothing, so they are not recorded
+        if(w.gameOver()) {
+            return;
+        }
+        w.doAction(action);
+
+        if(length == events.length) {
+            byte[] bigger = new byte[2*length];
+            System.arraycopy(events, 0, bigger, 0, length);
+            events = bigger;
+        }
+        events[length++] = (byte) (action | GameRecorder.percepts(w) << 3);
+    }
+}
@@ -0,0 +1,146 @@
+package wumpusworld;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A recorded game played back. It answers the agent from the recording and
+ * checks every action against it. When the agent does something else than
+ * was recorded the replay stops there, see diverged().
+ */
+class ReplayWorld implements GameWorld {
+
+    int width;
+    int height;
+    private boolean recordedGameOver;
+    private int score;
+    private int numEvents;
+    private ByteBuffer events;
+    private int next = 0;
+
+    //Player state, worked out from the actions and percepts
+    private int pX;
+    private int pY;
+    private int pDir;
+    private int percepts;
+    private int divergedAt = -1;
+
+    ReplayWorld(ByteBuffer game) {
+        width = TraceReader.getVarint(game);
+        height = TraceReader.getVarint(game);
+        pX = TraceReader.getVarint(game);
+        pY = TraceReader.getVarint(game);
+        pDir = TraceReader.getVarint(game);
+        percepts = TraceReader.getVarint(game);
+        recordedGameOver = TraceReader.getVarint(game) != 0;
+        score = GameRecorder.unzigzag(TraceReader.getVarint(game));
+        numEvents = TraceReader.getVarint(game);
+        events = game.slice();
+    }
+
+    /**
+     * If the agent did something else than was recorded.
+     */
+    public boolean diverged() {
+        return divergedAt != -1;
+    }
+
+    /**
+     * The event where the agent did something else, -1 if it did not.
+     */
+    public int divergedAt() {
+        return divergedAt;
+    }
+
+    /**
+     * Number of recorded actions played back so far.
+     */
+    public int position() {
+        return next;
+    }
+
+    public int getPlayerX() {
+        return pX;
+    }
+
+    public int getPlayerY() {
+        return pY;
+    }
+
+    public int getDirection() {
+        return pDir;
+    }
+
+    public boolean hasBreeze(int x, int y) {
+        return here(x, y) && (percepts & GameRecorder.BREEZE) != 0;
+    }
+
+    public boolean hasStench(int x, int y) {
+        return here(x, y) && (percepts & GameRecorder.STENCH) != 0;
+    }
+
+    public boolean hasGlitter(int x, int y) {
+        return here(x, y) && (percepts & GameRecorder.GLITTER) != 0;
+    }
+
+    public boolean isInPit() {
+        return (percepts & GameRecorder.PIT) != 0;
+    }
+
+    /**
+     * Over when the recording is played to its end or the agent left it.
+     */
+    public boolean gameOver() {
+        return diverged() || next == numEvents;
+    }
+
+    /**
+     * If the game had ended when it was recorded, false if it was stopped
+     * before (for example by the turn limit of BatchRunner).
+     */
+    public boolean recordedGameOver() {
+        return recordedGameOver;
+    }
+
+    /**
+     * The score the recorded game ended with.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    public void doAction(int action) {
+        if(diverged() || next == numEvents) {
+            return;
+        }
+        int e = events.get(next);
+        if((e & 7) != action) {
+            divergedAt = next;
+            return;
+        }
+        next++;
+
+        if(action == A_TURN_LEFT) {
+            pDir = (pDir + 3) % 4;
+        }
+        else if(action == A_TURN_RIGHT) {
+            pDir = (pDir + 1) % 4;
+        }
+        else if(action == A_MOVE && !isInPit()) {
+            int nx = pX + (pDir == DIR_RIGHT ? 1 : pDir == DIR_LEFT ? -1 : 0);
+            int ny = pY + (pDir == DIR_UP ? 1 : pDir == DIR_DOWN ? -1 : 0);
+            if(nx >= 1 && nx <= width && ny >= 1 && ny <= height) {
+                pX = nx;
+                pY = ny;
+            }
+        }
+        percepts = e >>> 3;
+    }
+
+    //Only the percepts of the cell the player is in are recorded
+    private boolean here(int x, int y) {
+        if(x != pX || y != pY) {
+            throw new IllegalStateException("No percepts recorded for (" + x + "," + y + ")");
+        }
+        return true;
+    }
+}
@@ -0,0 +1,299 @@
+package wumpusworld;
+
+import java.util.Random;
+
+/**
+ * A Wumpus World that lives only in memory, with no GUI behind it.
+ *
+ * It follows the scoring of the course World: every action costs 1, falling
+ * into a pit costs 1000, shooting the arrow costs 10, walking into a live
+ * wumpus costs 1000 and ends the game, grabbing the gold gives 1000 and
+ * ends the game. Coordinates start at 1 and the player starts in (1,1)
+ * facing right.
+ */
+class SimWorld implements GameWorld {
+
+    private int width;
+    private int height;
+
+    //What is in each cell, indexed by (x-1)*height + (y-1)
+    private boolean[] pits;
+    private boolean[] gold;
+    private int wumpusX = -1;
+    private int wumpusY = -1;
+
+    //Player state
+    private int pX = 1;
+    private int pY = 1;
+    private int pDir = DIR_RIGHT;
+    private boolean inPit = false;
+    private boolean hasArrow = true;
+    private boolean wumpusAlive = true;
+    private boolean hasGold = false;
+    private boolean gameOver = false;
+    private int score = 0;
+    private int actions = 0;
+
+    public SimWorld(int width, int height) {
+        this.width = width;
+        this.height = height;
+        pits = new boolean[width*height];
+        gold = new boolean[width*height];
+    }
+
+    /**
+     * A world at the same point of the same game. The pits and the gold do
+     * not change while playing, so the two share them and only the player
+     * and the wumpus are copied. Playing on in one does not change the other.
+     */
+    public SimWorld fork() {
+        return new SimWorld(this);
+    }
+
+    private SimWorld(SimWorld o) {
+        width = o.width;
+        height = o.height;
+        pits = o.pits;
+        gold = o.gold;
+        restore(o);
+    }
+
+    /**
+     * Takes this world back to the point of the game the fork o was at.
+     * o must be a fork of this world, or this a fork of o.
+     */
+    public void restore(SimWorld o) {
+        wumpusX = o.wumpusX;
+        wumpusY = o.wumpusY;
+        pX = o.pX;
+        pY = o.pY;
+        pDir = o.pDir;
+        inPit = o.inPit;
+        hasArrow = o.hasArrow;
+        wumpusAlive = o.wumpusAlive;
+        hasGold = o.hasGold;
+        gameOver = o.gameOver;
+        score = o.score;
+        actions = o.actions;
+    }
+
+    /**
+     * A random world: every cell except the start has a pit with the given
+     * chance, and there is one wumpus and one gold outside the start cell.
+     */
+    public static SimWorld generate(int width, int height, double pitChance, Random rnd) {
+        SimWorld sw = new SimWorld(width, height);
+
+        for(int x=1;x<=width;x++) {
+            for(int y=1;y<=height;y++) {
+                if((x != 1 || y != 1) && rnd.nextDouble() < pitChance) {
+                    sw.addPit(x, y);
+                }
+            }
+        }
+
+        int n = width*height;
+        if(n > 1) {
+            int i = 1 + rnd.nextInt(n-1);
+            sw.addWumpus(i / height + 1, i % height + 1);
+            i = 1 + rnd.nextInt(n-1);
+            sw.addGold(i / height + 1, i % height + 1);
+        }
+
+        return sw;
+    }
+
+    //Setup---------------------------------------------------------------------
+    public void addPit(int x, int y) {
+        pits[index(x, y)] = true;
+    }
+
+    public void addWumpus(int x, int y) {
+        wumpusX = x;
+        wumpusY = y;
+    }
+
+    public void addGold(int x, int y) {
+        gold[index(x, y)] = true;
+    }
+
+    /**
+     * Puts the player somewhere on the board, used to set up benchmark states.
+     */
+    public void setPlayer(int x, int y, int dir) {
+        pX = x;
+        pY = y;
+        pDir = dir;
+        inPit = hasPit(x, y);
+    }
+
+    //Queries-------------------------------------------------------------------
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isValidPosition(int x, int y) {
+        return x >= 1 && x <= width && y >= 1 && y <= height;
+    }
+
+    public boolean hasPit(int x, int y) {
+        return isValidPosition(x, y) && pits[index(x, y)];
+    }
+
+    public boolean hasWumpus(int x, int y) {
+        return wumpusAlive && x == wumpusX && y == wumpusY;
+    }
+
+    public int getPlayerX() {
+        return pX;
+    }
+
+    public int getPlayerY() {
+        return pY;
+    }
+
+    public int getDirection() {
+        return pDir;
+    }
+
+    public boolean hasBreeze(int x, int y) {
+        return hasPit(x, y+1) || hasPit(x-1, y) || hasPit(x+1, y) || hasPit(x, y-1);
+    }
+
+    public boolean hasStench(int x, int y) {
+        return hasWumpus(x, y+1) || hasWumpus(x-1, y) || hasWumpus(x+1, y) || hasWumpus(x, y-1);
+    }
+
+    public boolean hasGlitter(int x, int y) {
+        return isValidPosition(x, y) && gold[index(x, y)];
+    }
+
+    public boolean isInPit() {
+        return inPit;
+    }
+
+    public boolean hasGold() {
+        return hasGold;
+    }
+
+    public boolean gameOver() {
+        return gameOver;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Number of actions taken so far, including ones that had no effect.
+     */
+    public int getActionCount() {
+        return actions;
+    }
+
+    //Actions-------------------------------------------------------------------
+    public void doAction(int action) {
+        if(gameOver) {
+            return;
+        }
+        actions++;
+        score--;
+
+        switch(action) {
+            case A_TURN_LEFT:
+                pDir = (pDir + 3) % 4;
+                break;
+            case A_TURN_RIGHT:
+                pDir = (pDir + 1) % 4;
+                break;
+            case A_CLIMB:
+                inPit = false;
+                break;
+            case A_GRAB:
+                if(hasGlitter(pX, pY)) {
+                    hasGold = true;
+                    gameOver = true;
+                    score += 1000;
+                }
+                break;
+            case A_SHOOT:
+                shoot();
+                break;
+            case A_MOVE:
+                move();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown action " + action);
+        }
+    }
+
+    /**
+     * Does the actions in order, stopping early if the game ends.
+     */
+    public void doActions(int[] actions, int count) {
+        for(int i=0;i<count && !gameOver;i++) {
+            doAction(actions[i]);
+        }
+    }
+
+    private void move() {
+        //Can not walk out of a pit, we have to climb first
+        if(inPit) {
+            return;
+        }
+
+        int nx = pX + dx(pDir);
+        int ny = pY + dy(pDir);
+        if(!isValidPosition(nx, ny)) {
+            return;                 //Bumped into a wall
+        }
+
+        pX = nx;
+        pY = ny;
+
+        if(hasPit(pX, pY)) {
+            inPit = true;
+            score -= 1000;
+        }
+        if(hasWumpus(pX, pY)) {
+            score -= 1000;
+            gameOver = true;
+        }
+    }
+
+    private void shoot() {
+        if(!hasArrow) {
+            return;
+        }
+        hasArrow = false;
+        score -= 10;
+
+        //The arrow flies in a straight line until it hits the wall or the wumpus
+        int x = pX + dx(pDir);
+        int y = pY + dy(pDir);
+        while(isValidPosition(x, y)) {
+            if(hasWumpus(x, y)) {
+                wumpusAlive = false;
+                return;
+            }
+            x += dx(pDir);
+            y += dy(pDir);
+        }
+    }
+
+    private static int dx(int dir) {
+        return dir == DIR_RIGHT ? 1 : dir == DIR_LEFT ? -1 : 0;
+    }
+
+    private static int dy(int dir) {
+        return dir == DIR_UP ? 1 : dir == DIR_DOWN ? -1 : 0;
+    }
+
+    private int index(int x, int y) {
+        return (x-1)*height + (y-1);
+    }
+}
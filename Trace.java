@@ -0,0 +1,34 @@
+package wumpusworld;
+
+/**
+ * Where the agent writes its diagnostic output.
+ *
+ * Messages have a level and are only written if the trace is enabled for
+ * that level. Callers check isEnabled before building a message, so with the
+ * trace turned off no strings are built at all:
+ *
+ *     if(trace.isEnabled(Trace.DEBUG)) {
+ *         trace.println(Trace.DEBUG, "Risk value [" + d + "]: " + riskValue);
+ *     }
+ */
+interface Trace {
+
+    //Levels, a trace set to a level writes that level and everything below it
+    public static final int OFF = 0;
+    public static final int INFO = 1;       //What the agent does: new spaces, gold, shots, pits
+    public static final int DEBUG = 2;      //How it decided: cell lists, paths and risk values
+
+    //A trace that never writes anything
+    public static final Trace NONE = new Trace() {
+        public boolean isEnabled(int level) {
+            return false;
+        }
+
+        public void println(int level, String msg) {
+        }
+    };
+
+    public boolean isEnabled(int level);
+
+    public void println(int level, String msg);
+}
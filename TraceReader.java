@@ -0,0 +1,190 @@
+package wumpusworld;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a trace file written by GameRecorder and hands out its games one by
+ * one as ReplayWorlds, that MyAgent can play in as in any GameWorld.
+ *
+ * The file is memory mapped, a window of up to WINDOW bytes at a time, and
+ * the games are read straight from the mapping, so going through millions of
+ * games costs little more than reading the file once.
+ *
+ * Usage: TraceReader file [maxTurns] [policyFile]
+ * replays every game of the file through MyAgent, with an engine of the
+ * settings the games were recorded with, and tells how many games the agent
+ * played differently than when they were recorded. A policy table is not in
+ * the file, if the games were played with one it has to be given.
+ */
+public class TraceReader implements Closeable {
+
+    //Largest part of the file mapped at a time
+    public static final long WINDOW = 1L << 30;
+
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private long fileSize;
+
+    private MappedByteBuffer map;
+    private long mapStart;              //file position of the start of map
+    private byte[] settings;            //of the engine that played, with their length, see GameRecorder
+
+    public TraceReader(File file) throws IOException {
+        raf = new RandomAccessFile(file, "r");
+        channel = raf.getChannel();
+        fileSize = channel.size();
+
+        mapAt(0);
+        for(int i=0;i<GameRecorder.MAGIC.length;i++) {
+            if(fileSize <= i || map.get() != GameRecorder.MAGIC[i]) {
+                close();
+                throw new IOException(file + " is not a game trace file");
+            }
+        }
+        int start = map.position();
+        int len = getVarint(map);
+        settings = new byte[map.position() - start + len];
+        map.position(start);
+        map.get(settings);
+    }
+
+    /**
+     * The engine settings the games were recorded with, as GameRecorder.settings writes them.
+     */
+    public byte[] getSettings() {
+        return settings.clone();
+    }
+
+    /**
+     * If the games were played with a policy table.
+     */
+    public boolean usedPolicy() {
+        ByteBuffer b = settingsBuffer();
+        b.getLong();
+        getVarint(b);
+        return getVarint(b) != 0;
+    }
+
+    /**
+     * An engine with the settings the games were recorded with, that plays
+     * them the same way again. It uses the shared decision cache and
+     * metrics, which keep apart the decisions of engines that decide
+     * differently.
+     *
+     * @param policy The policy table the games were played with, null if none
+     */
+    public AgentEngine engine(Trace trace, PolicyTable policy) {
+        ByteBuffer b = settingsBuffer();
+        double pitPrior = Double.longBitsToDouble(b.getLong());
+        int depth = getVarint(b);
+        getVarint(b);       //policy used
+        int[] vector = new int[getVarint(b)];
+        for(int i=0;i<vector.length;i++) {
+            vector[i] = GameRecorder.unzigzag(getVarint(b));
+        }
+        return new AgentEngine(trace, pitPrior, DecisionCache.SHARED, AgentMetrics.SHARED,
+                depth > 0 ? new Lookahead(depth) : null, new CostModel(vector), policy);
+    }
+
+    //The settings after their length
+    private ByteBuffer settingsBuffer() {
+        ByteBuffer b = ByteBuffer.wrap(settings).order(ByteOrder.LITTLE_ENDIAN);
+        getVarint(b);
+        return b;
+    }
+
+    public boolean hasNext() {
+        return mapStart + map.position() < fileSize;
+    }
+
+    /**
+     * The next game of the file. The world reads its events from the
+     * mapping, it is good until the reader is closed.
+     */
+    public ReplayWorld next() throws IOException {
+        //Make sure the whole game is mapped, a varint length is at most 5 bytes
+        long pos = mapStart + map.position();
+        if(map.remaining() < 5 && mapStart + map.limit() < fileSize) {
+            mapAt(pos);
+        }
+        int len = getVarint(map);
+        if(map.remaining() < len) {
+            if(mapStart + map.position() + len > fileSize) {
+                throw new IOException("Trace file ends in the middle of a game at " + pos);
+            }
+            mapAt(mapStart + map.position());
+        }
+
+        ByteBuffer game = map.slice();
+        game.limit(len);
+        map.position(map.position() + len);
+        return new ReplayWorld(game);
+    }
+
+    private void mapAt(long pos) throws IOException {
+        long size = Math.min(WINDOW, fileSize - pos);
+        map = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+        mapStart = pos;
+    }
+
+    public void close() throws IOException {
+        raf.close();
+    }
+
+    static int getVarint(ByteBuffer b) {
+        int v = 0;
+        for(int shift=0;;shift+=7) {
+            int x = b.get();
+            v |= (x & 0x7F) << shift;
+            if((x & 0x80) == 0) {
+                return v;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.out.println("Usage: TraceReader file [maxTurns] [policyFile]");
+            return;
+        }
+        int maxTurns = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        PolicyTable policy = args.length > 2 ? new PolicyTable(new File(args[2])) : null;
+
+        long games = 0;
+        long diverged = 0;
+        long firstDiverged = -1;
+        long start = System.nanoTime();
+
+        try(TraceReader reader = new TraceReader(new File(args[0]))) {
+            if(reader.usedPolicy() && policy == null) {
+                System.out.println("The games were played with a policy table, without it they may play differently");
+            }
+            AgentEngine engine = reader.engine(Trace.NONE, policy);
+            while(reader.hasNext()) {
+                ReplayWorld rw = reader.next();
+                MyAgent agent = new MyAgent(rw, rw.width, rw.height, engine);
+                for(int turns=0;turns<maxTurns && !rw.gameOver();turns++) {
+                    agent.doAction();
+                }
+                if(rw.diverged()) {
+                    if(firstDiverged == -1) {
+                        firstDiverged = games;
+                    }
+                    diverged++;
+                }
+                games++;
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("Games:          %d in %.2f s (%.0f games/s)", games, seconds, games / seconds));
+        System.out.println("Diverged:       " + diverged + (firstDiverged != -1 ? ", first is game " + firstDiverged : ""));
+    }
+}
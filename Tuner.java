@@ -0,0 +1,167 @@
+package wumpusworld;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Searches for the CostModel with the best mean score by successive halving.
+ *
+ * A number of models are drawn at random, with the default among them.
+ * Each round plays every model left on the same seeded worlds, then drops
+ * the worse half and doubles the number of worlds for the next round, so
+ * the good models get the most games. A model keeps the games it played in
+ * earlier rounds and only plays the new worlds. The default is played on
+ * every round even when it is dropped, to compare against.
+ *
+ * All the games of a round, of all the models, run on one pool of threads.
+ *
+ * Usage: Tuner [configs] [games] [size] [pitChance] [seed] [threads] [rules]
+ *
+ * games is the number of worlds of the first round. With rules the models
+ * are tried with the counting rules instead of the inference, where the
+ * breeze and stench slack and the risk weight matter most.
+ */
+public class Tuner {
+
+    //Models shown after each round
+    private static final int SHOWN = 5;
+
+    /**
+     * A model and how it did so far.
+     */
+    static class Candidate {
+        CostModel model;
+        BatchRunner runner;
+        BatchStats stats = new BatchStats();
+        long played = 0;
+
+        Candidate(CostModel model, BatchRunner runner) {
+            this.model = model;
+            this.runner = runner;
+        }
+
+        double mean() {
+            return stats.meanScore();
+        }
+
+        //Standard error of the mean score
+        double error() {
+            return stats.games < 2 ? 0 : stats.scoreStdDev() / Math.sqrt(stats.games);
+        }
+    }
+
+    private int size;
+    private double pitChance;
+    private long seed;
+    private int maxTurns;
+    private AgentEngine engine;
+
+    /**
+     * @param engine Engine the models are tried in, each model gets a copy with its costs
+     */
+    public Tuner(int size, double pitChance, long seed, AgentEngine engine) {
+        this.size = size;
+        this.pitChance = pitChance;
+        this.seed = seed;
+        this.maxTurns = 10*size*size;
+        this.engine = engine;
+    }
+
+    private Candidate candidate(CostModel model) {
+        BatchRunner runner = new BatchRunner(size, size, pitChance, seed, maxTurns);
+        runner.setEngine(engine.withCostModel(model));
+        return new Candidate(model, runner);
+    }
+
+    /**
+     * Runs the search and returns the best candidate.
+     *
+     * @param configs Number of models to start with
+     * @param games Worlds every model plays in the first round
+     * @param threads Threads to play on
+     */
+    public Candidate tune(int configs, long games, int threads) {
+        Random rnd = new Random(seed);
+        Candidate baseline = candidate(CostModel.DEFAULT);
+        ArrayList<Candidate> alive = new ArrayList<>();
+        alive.add(baseline);
+        while(alive.size() < configs) {
+            alive.add(candidate(CostModel.random(rnd)));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long worlds = games;
+            for(int round=1;;round++) {
+                long start = System.nanoTime();
+                ArrayList<Candidate> playing = new ArrayList<>(alive);
+                if(!playing.contains(baseline)) {
+                    playing.add(baseline);
+                }
+                play(pool, playing, worlds);
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                alive.sort((a, b) -> Double.compare(b.mean(), a.mean()));
+                System.out.println(String.format("Round %d: %d models on %d worlds in %.1f s", round, alive.size(), worlds, seconds));
+                for(int i=0;i<Math.min(SHOWN, alive.size());i++) {
+                    System.out.println("  " + line(alive.get(i)));
+                }
+                System.out.println("  default: " + line(baseline));
+
+                if(alive.size() == 1) {
+                    return alive.get(0);
+                }
+                alive.subList((alive.size() + 1) / 2, alive.size()).clear();
+                worlds *= 2;
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    //Plays the worlds each candidate has not played yet, up to worlds
+    private void play(ForkJoinPool pool, ArrayList<Candidate> playing, long worlds) {
+        ArrayList<RecursiveTask<BatchStats>> tasks = new ArrayList<>();
+        for(int i=0;i<playing.size();i++) {
+            Candidate c = playing.get(i);
+            tasks.add(c.runner.games(c.played, worlds));
+        }
+        pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                invokeAll(tasks);
+                return null;
+            }
+        });
+        for(int i=0;i<playing.size();i++) {
+            Candidate c = playing.get(i);
+            c.stats.merge(tasks.get(i).join());
+            c.played = worlds;
+        }
+    }
+
+    private static String line(Candidate c) {
+        return String.format("mean %8.1f +- %5.1f, wins %6.2f %%  [%s]", c.mean(), c.error(), 100*c.stats.winRate(), c.model);
+    }
+
+    public static void main(String[] args) {
+        int configs = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        long games = args.length > 1 ? Long.parseLong(args[1]) : 500;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        double pitChance = args.length > 3 ? Double.parseDouble(args[3]) : 0.2;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        boolean rules = args.length > 6 && args[6].equals("rules");
+
+        //No decision cache, the models must not share decisions, and no metrics
+        AgentEngine engine = new AgentEngine(Trace.NONE, rules ? AgentEngine.NO_INFERENCE : 0.2, null, null);
+
+        System.out.println(String.format("%dx%d, pit chance %.2f, seed %d, %d threads, %s",
+                size, size, pitChance, seed, threads, rules ? "counting rules" : "inference"));
+        Candidate best = new Tuner(size, pitChance, seed, engine).tune(configs, games, threads);
+        System.out.println("Best: " + best.model);
+    }
+}
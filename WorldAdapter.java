@@ -0,0 +1,66 @@
+package wumpusworld;
+
+/**
+ * Lets the agent play in the course World.
+ */
+class WorldAdapter implements GameWorld {
+
+    private World w;
+
+    public WorldAdapter(World world) {
+        w = world;
+    }
+
+    public int getPlayerX() {
+        return w.getPlayerX();
+    }
+
+    public int getPlayerY() {
+        return w.getPlayerY();
+    }
+
+    public int getDirection() {
+        int d = w.getDirection();
+        if(d == World.DIR_UP) {     return DIR_UP;      }
+        if(d == World.DIR_RIGHT) {  return DIR_RIGHT;   }
+        if(d == World.DIR_DOWN) {   return DIR_DOWN;    }
+        return DIR_LEFT;
+    }
+
+    public boolean hasBreeze(int x, int y) {
+        return w.hasBreeze(x, y);
+    }
+
+    public boolean hasStench(int x, int y) {
+        return w.hasStench(x, y);
+    }
+
+    public boolean hasGlitter(int x, int y) {
+        return w.hasGlitter(x, y);
+    }
+
+    public boolean isInPit() {
+        return w.isInPit();
+    }
+
+    public boolean gameOver() {
+        return w.gameOver();
+    }
+
+    public int getScore() {
+        return w.getScore();
+    }
+
+    public void doAction(int action) {
+        switch(action) {
+            case A_MOVE:        w.doAction(World.A_MOVE);       break;
+            case A_TURN_LEFT:   w.doAction(World.A_TURN_LEFT);  break;
+            case A_TURN_RIGHT:  w.doAction(World.A_TURN_RIGHT); break;
+            case A_GRAB:        w.doAction(World.A_GRAB);       break;
+            case A_SHOOT:       w.doAction(World.A_SHOOT);      break;
+            case A_CLIMB:       w.doAction(World.A_CLIMB);      break;
+            default:
+                throw new IllegalArgumentException("Unknown action " + action);
+        }
+    }
+}
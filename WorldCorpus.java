@@ -0,0 +1,210 @@
+package wumpusworld;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A file of worlds made once, so every run and every version of the agent
+ * can be scored on the same worlds without making them again.
+ *
+ * World i of a corpus is the world BatchRunner plays as game i with the same
+ * size, pit chance and seed. The file is memory mapped and a world is read
+ * straight from the mapping when it is asked for, so any world can be picked
+ * without reading the ones before it.
+ *
+ * HEADER: "WWC1", width, height, record size (ints), number of worlds
+ *         (long), pit chance (double), seed (long). Big endian.
+ * RECORD: wumpus cell, gold cell (ints, -1 for none), then one bit per cell
+ *         for the pits, cell i = (x-1)*height + (y-1) in bit i%8 of byte i/8.
+ *
+ * Usage: WorldCorpus write file worlds [size] [pitChance] [seed]
+ *        WorldCorpus play file [threads] [maxTurns]
+ */
+public class WorldCorpus implements Closeable {
+
+    public static final byte[] MAGIC = { 'W', 'W', 'C', '1' };
+    public static final int HEADER_SIZE = 40;
+
+    //Largest part of the file mapped as one buffer
+    public static final long WINDOW = 1L << 30;
+
+    private int width;
+    private int height;
+    private int recordSize;
+    private long count;
+    private double pitChance;
+    private long seed;
+
+    private RandomAccessFile raf;
+    private MappedByteBuffer[] windows;
+    private long recordsPerWindow;
+
+    public WorldCorpus(File file) throws IOException {
+        raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(HEADER_SIZE, channel.size()));
+            for(int i=0;i<MAGIC.length;i++) {
+                if(header.remaining() < HEADER_SIZE || header.get(i) != MAGIC[i]) {
+                    throw new IOException(file + " is not a world corpus");
+                }
+            }
+            width = header.getInt(4);
+            height = header.getInt(8);
+            recordSize = header.getInt(12);
+            count = header.getLong(16);
+            pitChance = header.getDouble(24);
+            seed = header.getLong(32);
+            if(channel.size() < HEADER_SIZE + count*recordSize) {
+                throw new IOException(file + " is shorter than its " + count + " worlds");
+            }
+
+            //Windows hold whole records, so a world never lies across two of them
+            recordsPerWindow = WINDOW / recordSize;
+            windows = new MappedByteBuffer[(int) ((count + recordsPerWindow - 1) / recordsPerWindow)];
+            for(int k=0;k<windows.length;k++) {
+                long first = k*recordsPerWindow;
+                long records = Math.min(recordsPerWindow, count - first);
+                windows[k] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first*recordSize, records*recordSize);
+            }
+        }
+        catch(IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long size() {
+        return count;
+    }
+
+    public double getPitChance() {
+        return pitChance;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * A new SimWorld with the layout of world i. Safe to call from many threads.
+     */
+    public SimWorld world(long i) {
+        if(i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("World " + i + " of " + count);
+        }
+        ByteBuffer b = windows[(int) (i / recordsPerWindow)];
+        int at = (int) (i % recordsPerWindow) * recordSize;
+
+        SimWorld sw = new SimWorld(width, height);
+        int wumpus = b.getInt(at);
+        int gold = b.getInt(at + 4);
+        if(wumpus != -1) {
+            sw.addWumpus(wumpus / height + 1, wumpus % height + 1);
+        }
+        if(gold != -1) {
+            sw.addGold(gold / height + 1, gold % height + 1);
+        }
+
+        int n = width*height;
+        for(int j=0;j<n;j+=8) {
+            int bits = b.get(at + 8 + (j >>> 3)) & 0xFF;
+            for(;bits!=0;bits&=bits-1) {
+                int c = j + Integer.numberOfTrailingZeros(bits);
+                sw.addPit(c / height + 1, c % height + 1);
+            }
+        }
+        return sw;
+    }
+
+    public void close() throws IOException {
+        raf.close();
+    }
+
+    /**
+     * Makes count worlds the way BatchRunner does and writes them to file.
+     */
+    public static void write(File file, long count, int width, int height, double pitChance, long seed) throws IOException {
+        int n = width*height;
+        int recordSize = 8 + (n + 7) / 8;
+        BatchRunner maker = new BatchRunner(width, height, pitChance, seed, 0);
+        byte[] pits = new byte[recordSize - 8];
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.write(MAGIC);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt(recordSize);
+            out.writeLong(count);
+            out.writeDouble(pitChance);
+            out.writeLong(seed);
+
+            for(long i=0;i<count;i++) {
+                SimWorld sw = maker.world(i);
+                int wumpus = -1;
+                int gold = -1;
+                Arrays.fill(pits, (byte) 0);
+                for(int x=1;x<=width;x++) {
+                    for(int y=1;y<=height;y++) {
+                        int c = (x-1)*height + (y-1);
+                        if(sw.hasPit(x, y)) {       pits[c >>> 3] |= 1 << (c & 7);  }
+                        if(sw.hasWumpus(x, y)) {    wumpus = c; }
+                        if(sw.hasGlitter(x, y)) {   gold = c;   }
+                    }
+                }
+                out.writeInt(wumpus);
+                out.writeInt(gold);
+                out.write(pits);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length >= 3 && args[0].equals("write")) {
+            long worlds = Long.parseLong(args[2]);
+            int size = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+            double pitChance = args.length > 4 ? Double.parseDouble(args[4]) : 0.2;
+            long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+
+            long start = System.nanoTime();
+            write(new File(args[1]), worlds, size, size, pitChance, seed);
+            System.out.println(String.format("%d worlds written in %.2f s", worlds, (System.nanoTime() - start) / 1e9));
+        }
+        else if(args.length >= 2 && args[0].equals("play")) {
+            try(WorldCorpus corpus = new WorldCorpus(new File(args[1]))) {
+                int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+                int maxTurns = args.length > 3 ? Integer.parseInt(args[3]) : 10*corpus.width*corpus.height;
+
+                BatchRunner runner = new BatchRunner(corpus, maxTurns);
+                long start = System.nanoTime();
+                BatchStats stats = runner.run(corpus.size(), threads);
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                System.out.println(String.format("%dx%d corpus %s, pit chance %.2f, seed %d, %d threads",
+                    corpus.width, corpus.height, args[1], corpus.pitChance, corpus.seed, threads));
+                System.out.print(stats.report(seconds));
+            }
+        }
+        else {
+            System.out.println("Usage: WorldCorpus write file worlds [size] [pitChance] [seed]");
+            System.out.println("       WorldCorpus play file [threads] [maxTurns]");
+        }
+    }
+}
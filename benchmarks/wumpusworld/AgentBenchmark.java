@@ -0,0 +1,327 @@
+package wumpusworld;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmarks for the steps of MyAgent.doAction.
+ *
+ * Every benchmark starts from a knowledge state built in a SimWorld: a random
+ * square board of boardSize with pits placed with perceptDensity chance, and
+ * an agent that has visited visitedCells safe cells (fewer if the safe area
+ * around the start is smaller). The benchmarks live in the wumpusworld
+ * package so they can call the package-private steps of MyAgent.
+ *
+ * Compile together with the agent sources and jmh-core plus
+ * jmh-generator-annprocess, then run main() to get the results with the
+ * allocation rates from the GC profiler.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentBenchmark {
+
+    //Same worlds in every run
+    private static final long SEED = 42;
+
+    //Knowledge states made for each iteration of the benchmarks that use them up
+    static final int POOL = 1000;
+
+    //Engine of the knowledge states. No decision cache, so doAction always
+    //decides, and no metrics
+    private static final AgentEngine ENGINE = new AgentEngine(Trace.NONE, 0.2, null, null);
+
+    /**
+     * A knowledge state to run the decision steps on.
+     */
+    @State(Scope.Thread)
+    public static class Knowledge {
+        @Param({"4", "8", "16"})
+        public int boardSize;
+
+        @Param({"4", "12", "32"})
+        public int visitedCells;
+
+        @Param({"0.1", "0.2"})
+        public double perceptDensity;
+
+        Game game;
+        ArrayList<Cell> acCells;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            game = Game.build(boardSize, visitedCells, perceptDensity, true);
+            acCells = game.agent.getAccessibleCells();
+            game.agent.findWumpus();
+            game.agent.pathsToCells(acCells);
+        }
+    }
+
+    /**
+     * The old recursive path search grows exponentially with the number of
+     * visited cells, so it only runs on the standard board.
+     */
+    @State(Scope.Thread)
+    public static class SmallKnowledge {
+        @Param({"4"})
+        public int boardSize;
+
+        @Param({"4", "8", "12"})
+        public int visitedCells;
+
+        @Param({"0.1", "0.2"})
+        public double perceptDensity;
+
+        Game game;
+        ArrayList<Cell> acCells;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            game = Game.build(boardSize, visitedCells, perceptDensity, true);
+            acCells = game.agent.getAccessibleCells();
+        }
+    }
+
+    /**
+     * POOL fresh knowledge states for the steps that change them, made
+     * before each iteration. Each state is used by one call. The agents
+     * have not been told the last cell of the visit order yet.
+     */
+    @State(Scope.Thread)
+    public static class Unvisited {
+        @Param({"4", "8", "16"})
+        public int boardSize;
+
+        @Param({"4", "12", "32"})
+        public int visitedCells;
+
+        @Param({"0.1", "0.2"})
+        public double perceptDensity;
+
+        Game[] games = new Game[POOL];
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            for(int i=0;i<POOL;i++) {
+                games[i] = Game.build(boardSize, visitedCells, perceptDensity, false);
+            }
+        }
+    }
+
+    /**
+     * Like Unvisited, with the last cell told to the agents.
+     */
+    @State(Scope.Thread)
+    public static class Visited {
+        @Param({"4", "8", "16"})
+        public int boardSize;
+
+        @Param({"4", "12", "32"})
+        public int visitedCells;
+
+        @Param({"0.1", "0.2"})
+        public double perceptDensity;
+
+        Game[] games = new Game[POOL];
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            for(int i=0;i<POOL;i++) {
+                games[i] = Game.build(boardSize, visitedCells, perceptDensity, true);
+            }
+        }
+    }
+
+    //The steps that change the knowledge run once on each state of the pool, in one shot per
+    //iteration, and the time is given per step
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 20)
+    @Measurement(iterations = 20)
+    @OperationsPerInvocation(POOL)
+    public void newSpace(Unvisited k, Blackhole bh) {
+        for(int i=0;i<POOL;i++) {
+            Game g = k.games[i];
+            bh.consume(g.agent.newSpace(g.lastX, g.lastY));
+        }
+    }
+
+    @Benchmark
+    public ArrayList<Cell> getAccessibleCells(Knowledge k) {
+        return k.game.agent.getAccessibleCells();
+    }
+
+    @Benchmark
+    public ArrayList<Path> pathsToCells(Knowledge k) {
+        return k.game.agent.pathsToCells(k.acCells);
+    }
+
+    @Benchmark
+    public ArrayList<Path> bestPathTo(SmallKnowledge k) {
+        return k.game.agent.pathsToCellsRecursive(k.acCells);
+    }
+
+    @Benchmark
+    public int safestPath(Knowledge k) {
+        return k.game.agent.safestTarget();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 20)
+    @Measurement(iterations = 20)
+    @OperationsPerInvocation(POOL)
+    public void doAction(Visited k, Blackhole bh) {
+        for(int i=0;i<POOL;i++) {
+            k.games[i].agent.doAction();
+            bh.consume(k.games[i].world);
+        }
+    }
+
+    /**
+     * Whole games in the worlds of a corpus, one world after the other. The
+     * corpus is the file given as corpusFile, or one made for the trial.
+     */
+    @State(Scope.Thread)
+    public static class Corpus {
+        @Param({""})
+        public String corpusFile;
+
+        WorldCorpus corpus;
+        //Own engine without the shared decision cache, so every game decides instead of
+        //replaying the decisions of earlier trials, and without the shared metrics
+        AgentEngine engine = new AgentEngine(Trace.NONE, 0.2, null, null);
+        File made;
+        long next = 0;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            File f;
+            if(corpusFile.isEmpty()) {
+                made = File.createTempFile("worlds", ".wwc");
+                WorldCorpus.write(made, 10000, 4, 4, 0.2, SEED);
+                f = made;
+            }
+            else {
+                f = new File(corpusFile);
+            }
+            corpus = new WorldCorpus(f);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            corpus.close();
+            if(made != null) {
+                made.delete();
+            }
+        }
+    }
+
+    @Benchmark
+    public int playGame(Corpus c) {
+        SimWorld sw = c.corpus.world(c.next);
+        c.next = (c.next + 1) % c.corpus.size();
+
+        MyAgent agent = new MyAgent(sw, sw.getWidth(), sw.getHeight(), c.engine);
+        int maxTurns = 10*sw.getWidth()*sw.getHeight();
+        for(int turns=0;turns<maxTurns && !sw.gameOver();turns++) {
+            agent.doAction();
+        }
+        return sw.getScore();
+    }
+
+    /**
+     * A SimWorld and an agent that has explored part of it.
+     */
+    static class Game {
+        SimWorld world;
+        MyAgent agent;
+        int lastX;      //last cell of the visit order, 1-based
+        int lastY;
+
+        /**
+         * Visits safe cells breadth first from (1,1) and leaves the player
+         * standing in the last one. If visitLast is false the last cell is
+         * not told to the agent yet.
+         */
+        static Game build(int size, int visitedCells, double pitChance, boolean visitLast) {
+            Game g = new Game();
+            g.world = SimWorld.generate(size, size, pitChance, new Random(SEED));
+            g.agent = new MyAgent(g.world, size, size, ENGINE);
+
+            //Breadth first over the cells without pit or wumpus
+            int[] order = new int[size*size];
+            boolean[] seen = new boolean[size*size];
+            int head = 0;
+            int tail = 0;
+            order[tail++] = 0;
+            seen[0] = true;
+
+            int count = Math.min(visitedCells, size*size);
+            while(head < tail && head < count) {
+                int i = order[head++];
+                int x = i / size + 1;
+                int y = i % size + 1;
+
+                for(int d=0;d<4;d++) {
+                    int nx = x + Board.DX[d];
+                    int ny = y + Board.DY[d];
+                    if(!g.world.isValidPosition(nx, ny)) {
+                        continue;
+                    }
+                    int n = (nx-1)*size + (ny-1);
+                    if(!seen[n] && !g.world.hasPit(nx, ny) && !g.world.hasWumpus(nx, ny)) {
+                        seen[n] = true;
+                        order[tail++] = n;
+                    }
+                }
+            }
+
+            //head is now the number of cells in the visit order
+            for(int v=0;v<head;v++) {
+                g.lastX = order[v] / size + 1;
+                g.lastY = order[v] % size + 1;
+                if(v < head-1 || visitLast) {
+                    g.agent.newSpace(g.lastX, g.lastY);
+                }
+            }
+
+            g.world.setPlayer(g.lastX, g.lastY, GameWorld.DIR_RIGHT);
+            return g;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(AgentBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opt).run();
+    }
+}
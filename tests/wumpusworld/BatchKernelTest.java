@@ -0,0 +1,98 @@
+package wumpusworld;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The counting rules worked out by BatchKernel for many games at once
+ * against the rules of AgentEngine, game by game.
+ */
+class BatchKernelTest {
+
+    @Test
+    void kernelPicksTheTargetsOfTheRules() {
+        checkTargets(4, 16, 400);
+        checkTargets(7, 8, 100);
+    }
+
+    @Test
+    void batchedGamesPlayLikeSingleGames() {
+        checkBatched(4, 2000, 16);
+        checkBatched(8, 200, 8);
+    }
+
+    //Plays games lanes at a time as BatchAgents does, and at every turn that needs
+    //the rules compares the target of the kernel with that of safestTarget
+    private static void checkTargets(int size, int lanes, int games) {
+        AgentEngine engine = new AgentEngine(Trace.NONE, AgentEngine.NO_INFERENCE, null, null);
+        BatchKernel kernel = new BatchKernel(size, size, lanes);
+        int checked = 0;
+        for(int from=0;from<games;from+=lanes) {
+            GameState[] states = new GameState[lanes];
+            AgentEngine.Workspace[] workspaces = new AgentEngine.Workspace[lanes];
+            SimWorld[] worlds = new SimWorld[lanes];
+            for(int g=0;g<lanes;g++) {
+                states[g] = engine.newGame(size, size);
+                workspaces[g] = engine.newWorkspace();
+                worlds[g] = SimWorld.generate(size, size, 0.2, new Random(from + g));
+                kernel.clear(g);
+            }
+
+            boolean[] pending = new boolean[lanes];
+            for(int turn=0;turn<10*size*size;turn++) {
+                for(int g=0;g<lanes;g++) {
+                    pending[g] = false;
+                    if(worlds[g].gameOver()) {
+                        continue;
+                    }
+                    Board board = states[g].board;
+                    int c = board.index(worlds[g].getPlayerX()-1, worlds[g].getPlayerY()-1);
+                    boolean known = board.visited.get(c);
+                    pending[g] = !engine.beginTurn(states[g], workspaces[g], worlds[g]);
+                    if(!known) {
+                        kernel.visit(g, c, board.breeze.get(c), board.stench.get(c));
+                    }
+                    kernel.setWumpusFound(g, states[g].wumpusFound);
+                }
+                kernel.evaluate(engine.getCostModel());
+                for(int g=0;g<lanes;g++) {
+                    if(pending[g]) {
+                        int target = engine.safestTarget(states[g], workspaces[g], false);
+                        assertEquals(target, engine.kernelTarget(states[g], workspaces[g], kernel, g),
+                                "game " + (from + g) + " turn " + turn);
+                        engine.finishTurn(states[g], workspaces[g], worlds[g], target, true);
+                        checked++;
+                    }
+                }
+            }
+        }
+        assertTrue(checked > games, "only " + checked + " turns needed the rules");
+    }
+
+    private static void checkBatched(int size, int games, int lanes) {
+        BatchRunner runner = new BatchRunner(size, size, 0.2, 3, 10*size*size);
+        runner.setEngine(new AgentEngine(Trace.NONE, AgentEngine.NO_INFERENCE, null, null));
+        BatchStats single = new BatchStats();
+        for(int i=0;i<games;i++) {
+            runner.play(i, single);
+        }
+
+        runner.setLanes(lanes);
+        BatchStats batched = new BatchStats();
+        runner.playBatched(0, games, batched);
+
+        assertEquals(0, single.errors);
+        assertEquals(0, batched.errors);
+        assertEquals(single.games, batched.games);
+        assertEquals(single.wins, batched.wins);
+        assertEquals(single.timeouts, batched.timeouts);
+        assertEquals(single.scoreSum, batched.scoreSum);
+        assertEquals(single.actionSum, batched.actionSum);
+        assertArrayEquals(single.histogram, batched.histogram);
+    }
+}
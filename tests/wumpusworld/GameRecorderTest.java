@@ -0,0 +1,148 @@
+package wumpusworld;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Games recorded by GameRecorder and played back by TraceReader.
+ */
+class GameRecorderTest {
+
+    @Test
+    void varintsReadBackWhatWasWritten() {
+        int[] values = { 0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE };
+        byte[] buf = new byte[5*values.length];
+        int n = 0;
+        for(int i=0;i<values.length;i++) {
+            n = GameRecorder.putVarint(buf, n, values[i]);
+        }
+
+        ByteBuffer b = ByteBuffer.wrap(buf, 0, n);
+        for(int i=0;i<values.length;i++) {
+            assertEquals(values[i], TraceReader.getVarint(b));
+        }
+        assertFalse(b.hasRemaining());
+
+        //A value below 128 takes one byte
+        assertEquals(1, GameRecorder.putVarint(buf, 0, 127));
+        assertEquals(2, GameRecorder.putVarint(buf, 0, 128));
+    }
+
+    @Test
+    void zigzagKeepsSmallNumbersSmall() {
+        int[] values = { 0, -1, 1, -2, 2, -1000, 1000, Integer.MIN_VALUE, Integer.MAX_VALUE };
+        for(int i=0;i<values.length;i++) {
+            assertEquals(values[i], GameRecorder.unzigzag(GameRecorder.zigzag(values[i])));
+        }
+        assertEquals(0, GameRecorder.zigzag(0));
+        assertEquals(1, GameRecorder.zigzag(-1));
+        assertEquals(2, GameRecorder.zigzag(1));
+    }
+
+    @Test
+    void replayPlaysTheRecordedGames() throws IOException {
+        File file = File.createTempFile("games", ".wwt");
+        try {
+            AgentEngine engine = engine();
+            int[] scores = record(file, engine, 500);
+
+            try(TraceReader reader = new TraceReader(file)) {
+                AgentEngine replay = reader.engine(Trace.NONE, null);
+                int games = 0;
+                while(reader.hasNext()) {
+                    ReplayWorld rw = reader.next();
+                    assertEquals(4, rw.width);
+                    assertEquals(4, rw.height);
+                    assertEquals(scores[games], rw.getScore());
+
+                    MyAgent agent = new MyAgent(rw, rw.width, rw.height, replay);
+                    for(int turns=0;turns<160 && !rw.gameOver();turns++) {
+                        agent.doAction();
+                    }
+                    assertFalse(rw.diverged(), "game " + games + " diverged at " + rw.divergedAt());
+                    games++;
+                }
+                assertEquals(scores.length, games);
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void settingsRebuildTheEngine() throws IOException {
+        File file = File.createTempFile("games", ".wwt");
+        try {
+            AgentEngine engine = engine();
+            record(file, engine, 1);
+
+            try(TraceReader reader = new TraceReader(file)) {
+                assertArrayEquals(GameRecorder.settings(engine), reader.getSettings());
+                assertFalse(reader.usedPolicy());
+
+                AgentEngine replay = reader.engine(Trace.NONE, null);
+                assertEquals(engine.getPitPrior(), replay.getPitPrior());
+                assertEquals(engine.getLookahead().getDepth(), replay.getLookahead().getDepth());
+                assertEquals(engine.getCostModel(), replay.getCostModel());
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void appendingNeedsTheSameSettings() throws IOException {
+        File file = File.createTempFile("games", ".wwt");
+        try {
+            record(file, engine(), 10);
+            record(file, engine(), 10);
+            try(TraceReader reader = new TraceReader(file)) {
+                int games = 0;
+                for(;reader.hasNext();games++) {
+                    reader.next();
+                }
+                assertEquals(20, games);
+            }
+
+            IOException e = assertThrows(IOException.class, () -> new GameRecorder(file, new AgentEngine(Trace.NONE)));
+            assertTrue(e.getMessage().contains("other engine settings"));
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    //Not the default settings, so a replay with the default engine would play differently
+    private static AgentEngine engine() {
+        int[] v = CostModel.DEFAULT.vector();
+        v[CostModel.PIT_COST] = 400;
+        return new AgentEngine(Trace.NONE, 0.3, null, null, new Lookahead(2), new CostModel(v));
+    }
+
+    //Records games on one thread, so they are in the file in order, and returns their scores
+    private static int[] record(File file, AgentEngine engine, int games) throws IOException {
+        BatchRunner runner = new BatchRunner(4, 4, 0.2, 5, 160);
+        runner.setEngine(engine);
+        int[] scores = new int[games];
+        try(GameRecorder recorder = new GameRecorder(file, engine)) {
+            runner.setRecorder(recorder);
+            for(int i=0;i<games;i++) {
+                BatchStats stats = new BatchStats();
+                runner.play(i, stats);
+                scores[i] = (int) stats.scoreSum;
+            }
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,174 @@
+package wumpusworld;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Marks and undo of GameState and Board, and forks of SimWorld, taking a
+ * game back to exactly what it was.
+ */
+class GameStateTest {
+
+    @Test
+    void undoRestoresTheBoard() {
+        checkUndo(4, 300, false);
+        checkUndo(8, 50, false);
+    }
+
+    @Test
+    void undoRestoresASparseBoard() {
+        checkUndo(8, 50, true);
+    }
+
+    @Test
+    void undoKeepsTheCopiesApart() {
+        AgentEngine engine = new AgentEngine(Trace.NONE, 0.2, null, null);
+        SimWorld w = SimWorld.generate(4, 4, 0.2, new Random(3));
+        GameState s = engine.newGame(4, 4);
+        for(int turn=0;turn<4 && !w.gameOver();turn++) {
+            engine.doAction(s, w);
+        }
+
+        String before = snapshot(s);
+        int mark = s.mark();
+        GameState copy = new GameState(s);
+        Board b = s.board;
+        Cell c = b.get(b.frontierAt(0));
+        engine.newSpace(s, new Seen(true, true), c.px+1, c.py+1);
+        String after = snapshot(s);
+        s.undo(mark);
+
+        assertEquals(before, snapshot(s));
+        assertEquals(before, snapshot(copy));
+        assertNotEquals(before, after);
+    }
+
+    @Test
+    void forkedWorldsPlayOnTheirOwn() {
+        AgentEngine engine = new AgentEngine(Trace.NONE, 0.2, null, null);
+        for(int i=0;i<200;i++) {
+            SimWorld w = SimWorld.generate(4, 4, 0.2, new Random(i));
+            GameState s = engine.newGame(4, 4);
+            for(int turn=0;turn<3 && !w.gameOver();turn++) {
+                engine.doAction(s, w);
+            }
+            SimWorld fork = w.fork();
+            String world = snapshot(w);
+
+            GameState t = new GameState(s);
+            for(int turn=0;turn<160 && !fork.gameOver();turn++) {
+                engine.doAction(t, fork);
+            }
+            assertEquals(world, snapshot(w));
+
+            fork.restore(w);
+            assertEquals(world, snapshot(fork));
+        }
+    }
+
+    //Plays games and before every turn imagines a few nested steps into the
+    //frontier, each under a mark, then undoes the marks in random order
+    private static void checkUndo(int size, int games, boolean sparse) {
+        AgentEngine engine = new AgentEngine(Trace.NONE, 0.2, null, null);
+        Random rnd = new Random(5);
+        int checked = 0;
+        for(int i=0;i<games;i++) {
+            SimWorld w = SimWorld.generate(size, size, 0.2, new Random(i));
+            GameState s = engine.newGame(size, size);
+            if(sparse) {
+                s.board = new Board(size, size, true);
+            }
+            for(int turn=0;turn<10*size*size && !w.gameOver();turn++) {
+                engine.doAction(s, w);
+
+                String before = snapshot(s);
+                int[] marks = new int[5];
+                String[] states = new String[5];
+                int depth = 1 + rnd.nextInt(marks.length);
+                for(int d=0;d<depth;d++) {
+                    marks[d] = s.mark();
+                    states[d] = snapshot(s);
+                    Board b = s.board;
+                    if(b.frontierSize() == 0) {
+                        depth = d+1;
+                        break;
+                    }
+                    Cell c = b.get(b.frontierAt(rnd.nextInt(b.frontierSize())));
+                    engine.newSpace(s, new Seen(rnd.nextBoolean(), rnd.nextInt(4) == 0), c.px+1, c.py+1);
+                    if(rnd.nextInt(8) == 0) {
+                        b.markPit(c);
+                    }
+                    s.wumpusFound = engine.findWumpus(s);
+                }
+                for(int d=depth-1;d>=0;d--) {
+                    if(d == 0 || rnd.nextBoolean()) {
+                        s.undo(marks[d]);
+                        assertEquals(states[d], snapshot(s), "game " + i + " turn " + turn + " mark " + d);
+                        checked++;
+                    }
+                }
+                assertEquals(before, snapshot(s));
+            }
+        }
+        assertTrue(checked > games, "only " + checked + " undos checked");
+    }
+
+    //Everything the rules and the cache key read from the game
+    private static String snapshot(GameState s) {
+        Board b = s.board;
+        StringBuilder sb = new StringBuilder();
+        sb.append(b.hash).append('|').append(b.wumpusCandidateCount()).append('|').append(s.wumpusFound)
+                .append('|').append(b.slotCount()).append('|');
+        CellSet[] sets = { b.visited, b.accessible, b.breeze, b.stench, b.pit, b.wumpus };
+        for(int k=0;k<sets.length;k++) {
+            for(int i=sets[k].nextSetBit(0);i!=-1;i=sets[k].nextSetBit(i+1)) {
+                sb.append(i).append(',');
+            }
+            sb.append('|');
+        }
+        for(int i=0;i<b.frontierSize();i++) {
+            Cell c = b.get(b.frontierAt(i));
+            sb.append(c.index).append(':').append(b.riskLevel(c)).append(',');
+        }
+        sb.append('|');
+        for(int i=0;i<b.size();i++) {
+            Cell c = b.get(i);
+            sb.append(c.numBreezes).append(c.numStenches).append(c.numVisited)
+                    .append(b.isWumpusCandidate(i) ? 'w' : '-').append(c.slot).append(';');
+        }
+        return sb.toString();
+    }
+
+    private static String snapshot(SimWorld w) {
+        return w.getPlayerX() + "," + w.getPlayerY() + "," + w.getDirection() + "," + w.getScore()
+                + "," + w.isInPit() + "," + w.hasGold() + "," + w.gameOver();
+    }
+
+    //The same percepts wherever we stand
+    private static class Seen implements Percepts {
+        private boolean breeze;
+        private boolean stench;
+
+        Seen(boolean breeze, boolean stench) {
+            this.breeze = breeze;
+            this.stench = stench;
+        }
+
+        public boolean hasBreeze(int x, int y) {
+            return breeze;
+        }
+
+        public boolean hasStench(int x, int y) {
+            return stench;
+        }
+
+        public boolean isInPit() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package wumpusworld;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The costs of the paths PathSearch finds against the old recursive search.
+ */
+class PathSearchTest {
+
+    @Test
+    void costsAreThoseOfTheRecursiveSearch() {
+        checkCosts(4, 1000, AgentEngine.NO_INFERENCE);
+        checkCosts(4, 300, 0.2);
+        checkCosts(5, 200, 0.2);
+    }
+
+    @Test
+    void pathsLeadFromTheTargetToWhereWeStand() {
+        AgentEngine engine = new AgentEngine(Trace.NONE, 0.2, null, null);
+        for(int i=0;i<200;i++) {
+            SimWorld w = SimWorld.generate(4, 4, 0.2, new Random(i));
+            MyAgent agent = new MyAgent(w, 4, 4, engine);
+            for(int turn=0;turn<60 && !w.gameOver();turn++) {
+                agent.doAction();
+                ArrayList<Cell> cells = agent.getAccessibleCells();
+                ArrayList<Path> paths = agent.pathsToCells(cells);
+                Cell here = agent.getState().board.get(w.getPlayerX()-1, w.getPlayerY()-1);
+                for(int j=0;j<cells.size();j++) {
+                    ArrayList<Cell> p = paths.get(j).cellList;
+                    assertEquals(cells.get(j), p.get(0));
+                    assertEquals(here, p.get(p.size()-1));
+                }
+            }
+        }
+    }
+
+    //Before every turn of the games, the cost of the path to every accessible cell
+    private static void checkCosts(int size, int games, double pitPrior) {
+        AgentEngine engine = new AgentEngine(Trace.NONE, pitPrior, null, null);
+        int checked = 0;
+        for(int i=0;i<games;i++) {
+            SimWorld w = SimWorld.generate(size, size, 0.2, new Random(i));
+            MyAgent agent = new MyAgent(w, size, size, engine);
+            for(int turn=0;turn<10*size*size && !w.gameOver();turn++) {
+                agent.doAction();
+                ArrayList<Cell> cells = agent.getAccessibleCells();
+                ArrayList<Path> paths = agent.pathsToCells(cells);
+                ArrayList<Path> recursive = agent.pathsToCellsRecursive(cells);
+                for(int j=0;j<cells.size();j++) {
+                    assertEquals(recursive.get(j).cost, paths.get(j).cost, "game " + i + " turn " + turn + " cell " + j);
+                    checked++;
+                }
+            }
+        }
+        assertTrue(checked > games, "only " + checked + " paths checked");
+    }
+}
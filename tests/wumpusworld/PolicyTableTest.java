@@ -0,0 +1,144 @@
+package wumpusworld;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Lookups in the perfect hash of PolicyTable.
+ */
+class PolicyTableTest {
+
+    @Test
+    void pathsPackAndUnpack() {
+        int[] path = { 15, 0, 3, 7, 12, 1, 2, 3, 4, 5, 6, 8, 9, 10, 11 };
+        int[] back = new int[PolicyTable.MAX_PATH];
+        for(int len=0;len<=PolicyTable.MAX_PATH;len++) {
+            assertEquals(len, PolicyTable.unpack(PolicyTable.pack(path, len), back));
+            assertArrayEquals(Arrays.copyOf(path, len), Arrays.copyOf(back, len));
+        }
+    }
+
+    @Test
+    void everyKeyFindsItsPath() {
+        int n = 20000;
+        long[] keys = keys(n, 1);
+        long[] paths = paths(n, 2);
+        PolicyTable table = PolicyTable.build(4, 4, 0.2, keys, paths, n);
+        assertEquals(n, table.size());
+        assertFound(table, keys, paths);
+    }
+
+    @Test
+    void absentKeysAreNotFound() {
+        int n = 5000;
+        long[] keys = keys(2*n, 3);
+        PolicyTable table = PolicyTable.build(4, 4, 0.2, keys, paths(n, 4), n);
+        int[] path = new int[PolicyTable.MAX_PATH];
+        for(int i=n;i<2*n;i++) {
+            assertEquals(0, table.get(keys[i], path));
+        }
+    }
+
+    @Test
+    void smallTablesWork() {
+        for(int n=0;n<10;n++) {
+            long[] keys = keys(n, n);
+            long[] paths = paths(n, n);
+            assertFound(PolicyTable.build(3, 3, 0.2, keys, paths, n), keys, paths);
+        }
+    }
+
+    @Test
+    void tableReadsBackFromFile() throws IOException {
+        int n = 3000;
+        long[] keys = keys(n, 5);
+        long[] paths = paths(n, 6);
+        File file = File.createTempFile("policy", ".bin");
+        try {
+            PolicyTable.build(3, 4, 0.25, keys, paths, n).write(file);
+            try(PolicyTable table = new PolicyTable(file)) {
+                assertEquals(3, table.getWidth());
+                assertEquals(4, table.getHeight());
+                assertEquals(0.25, table.getPitChance());
+                assertEquals(n, table.size());
+                assertFound(table, keys, paths);
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void onlyBoardsOfUpToMaxCells() {
+        assertThrows(IllegalArgumentException.class, () -> PolicyTable.build(5, 4, 0.2, new long[0], new long[0], 0));
+    }
+
+    @Test
+    void engineIgnoresTableOfAnotherPitChance() {
+        PolicyTable table = PolicyTable.build(4, 4, 0.2, new long[0], new long[0], 0);
+        AgentEngine engine = new AgentEngine(Trace.NONE, 0.2, null, null).withPolicy(table);
+        assertTrue(engine.usesPolicy());
+        assertFalse(engine.withPitPrior(0.3).usesPolicy());
+        assertFalse(engine.withPitPrior(AgentEngine.NO_INFERENCE).usesPolicy());
+        assertTrue(engine.withPitPrior(AgentEngine.NO_INFERENCE).withPitPrior(0.2).usesPolicy());
+    }
+
+    private static void assertFound(PolicyTable table, long[] keys, long[] paths) {
+        int[] path = new int[PolicyTable.MAX_PATH];
+        int[] expected = new int[PolicyTable.MAX_PATH];
+        for(int i=0;i<keys.length;i++) {
+            int len = PolicyTable.unpack(paths[i], expected);
+            assertEquals(len, table.get(keys[i], path));
+            assertArrayEquals(Arrays.copyOf(expected, len), Arrays.copyOf(path, len));
+        }
+    }
+
+    //Different keys, none of them 0 as that is the key of an empty slot
+    private static long[] keys(int n, long seed) {
+        Random rnd = new Random(seed);
+        long[] keys = new long[n];
+        for(int i=0;i<n;i++) {
+            long k;
+            do {
+                k = rnd.nextLong();
+            } while(k == 0 || contains(keys, i, k));
+            keys[i] = k;
+        }
+        return keys;
+    }
+
+    private static boolean contains(long[] a, int n, long v) {
+        for(int i=0;i<n;i++) {
+            if(a[i] == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Paths of 1 to MAX_PATH cells of a 4x4 board
+    private static long[] paths(int n, long seed) {
+        Random rnd = new Random(seed);
+        long[] paths = new long[n];
+        int[] path = new int[PolicyTable.MAX_PATH];
+        for(int i=0;i<n;i++) {
+            int len = 1 + rnd.nextInt(PolicyTable.MAX_PATH);
+            for(int j=0;j<len;j++) {
+                path[j] = rnd.nextInt(16);
+            }
+            paths[i] = PolicyTable.pack(path, len);
+        }
+        return paths;
+    }
+}